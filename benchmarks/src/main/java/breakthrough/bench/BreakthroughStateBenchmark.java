@@ -0,0 +1,75 @@
+package breakthrough.bench;
+
+import breakthrough.BreakthroughState;
+import breakthrough.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and make/retract throughput of the array based BreakthroughState.
+ *
+ * Every operation runs over all positions of the selected game phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BreakthroughStateBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String phase;
+
+    private BreakthroughState[] states;
+    private ArrayList<ArrayList<Move>> moves;
+
+    @Setup
+    public void setup() {
+        String[] fens = Positions.get(phase);
+        states = new BreakthroughState[fens.length];
+        moves  = new ArrayList<ArrayList<Move>>();
+        for (int i = 0; i < fens.length; i++) {
+            states[i] = new BreakthroughState(8, 8);
+            if (!states[i].setup(fens[i])) {
+                throw new IllegalStateException("Illegal benchmark position: " + fens[i]);
+            }
+            moves.add(states[i].getActions(null));
+        }
+    }
+
+    @Benchmark
+    public void getActions(Blackhole bh) {
+        for (BreakthroughState state : states) {
+            bh.consume(state.getActions(null));
+        }
+    }
+
+    @Benchmark
+    public int makeRetract() {
+        int turns = 0;
+        for (int i = 0; i < states.length; i++) {
+            BreakthroughState state = states[i];
+            for (Move move : moves.get(i)) {
+                state.make(move);
+                turns += state.getPlayerToMove();
+                state.retract(move);
+            }
+        }
+        return turns;
+    }
+
+}
@@ -0,0 +1,102 @@
+package breakthrough.bench;
+
+import breakthrough.DiscoveryMove;
+import breakthrough.DiscoveryState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and make/retract throughput of the bitboard DiscoveryState.
+ *
+ * Every operation runs over all positions of the selected game phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscoveryStateBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String phase;
+
+    private DiscoveryState[] states;
+    private int[][] moves;
+    private int[] moveStack = new int[DiscoveryState.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        String[] fens = Positions.get(phase);
+        states = new DiscoveryState[fens.length];
+        moves  = new int[fens.length][];
+        for (int i = 0; i < fens.length; i++) {
+            states[i] = new DiscoveryState(fens[i]);
+            ArrayList<Integer> list = states[i].getAllMoves(DiscoveryMove.MOVE_NONE);
+            moves[i] = new int[list.size()];
+            for (int j = 0; j < list.size(); j++) {
+                moves[i][j] = list.get(j);
+            }
+        }
+    }
+
+    @Benchmark
+    public void getAllMoves(Blackhole bh) {
+        for (DiscoveryState state : states) {
+            bh.consume(state.getAllMoves(DiscoveryMove.MOVE_NONE));
+        }
+    }
+
+    @Benchmark
+    public void getCaptureMoves(Blackhole bh) {
+        for (DiscoveryState state : states) {
+            bh.consume(state.getCaptureMoves(DiscoveryMove.MOVE_NONE));
+        }
+    }
+
+    @Benchmark
+    public int getAllMovesIntoStack() {
+        int count = 0;
+        for (DiscoveryState state : states) {
+            count += state.getAllMoves(moveStack, 0, DiscoveryMove.MOVE_NONE);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int getCaptureMovesIntoStack() {
+        int count = 0;
+        for (DiscoveryState state : states) {
+            count += state.getCaptureMoves(moveStack, 0, DiscoveryMove.MOVE_NONE);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long makeRetract() {
+        long key = 0;
+        for (int i = 0; i < states.length; i++) {
+            DiscoveryState state = states[i];
+            for (int move : moves[i]) {
+                state.make(move);
+                key ^= state.key;
+                state.retract(move);
+            }
+        }
+        return key;
+    }
+
+}
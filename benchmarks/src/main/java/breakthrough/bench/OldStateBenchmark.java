@@ -0,0 +1,53 @@
+package breakthrough.bench;
+
+import breakthrough.OldState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation throughput of the 12x15 mailbox OldState.
+ *
+ * Every operation runs over all positions of the selected game phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OldStateBenchmark {
+
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String phase;
+
+    private OldState[] states;
+
+    @Setup
+    public void setup() {
+        String[] fens = Positions.get(phase);
+        states = new OldState[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            states[i] = new OldState(fens[i]);
+        }
+    }
+
+    @Benchmark
+    public void getActions(Blackhole bh) {
+        for (OldState state : states) {
+            bh.consume(state.getActions(null));
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package breakthrough.bench;
+
+/**
+ * Positions
+ *
+ * Fixed corpus of 8x8 positions (FEN-like strings) used by the benchmarks, grouped by game
+ * phase. The positions were reached by random play from the initial position and must never
+ * change, otherwise results are not comparable between runs.
+ */
+public class Positions {
+
+    public static final String OPENING     = "opening";
+    public static final String MIDDLEGAME  = "middlegame";
+    public static final String ENDGAME     = "endgame";
+
+    private static final String[] OPENING_FENS = {
+        "bbbbbbbbbbbbbbbb................................wwwwwwwwwwwwwwww 0",
+        "bbb.bbbbb.bbbbbb..b.b.............w.....w.........wwwwwwwwwwwwww 0",
+        "bbb.bbbbbb.bbbb.....b.b....b............w..w..w.wwwww.ww.ww.wwww 0",
+    };
+
+    private static final String[] MIDDLEGAME_FENS = {
+        ".bbb.bbb.bbbb.bb.bb..........w...w..w.....w......b..wwwwwwwww..w 0",
+        "b.bb...bbbb.b.bb...b......bb.b.......w...www...ww..ww..wwww..ww. 0",
+        ".b.......b....bb.bbbbb.bb..........w.w.ww..w.....w.....wwww.ww.w 1",
+    };
+
+    private static final String[] ENDGAME_FENS = {
+        "b..bb.bb.b.b..b..b...b...w.......b.....w......ww.wb...w.w.w.w... 0",
+        "..b...b.b...bb..bb.....b........b..wb...........w.www..ww.w....w 0",
+        "...bb.b..b.b.b...w..b.b.b.b.w..b........w..w.ww.w...w..b....ww.. 0",
+    };
+
+    public static String[] get(String phase) {
+        switch (phase) {
+            case OPENING:    return OPENING_FENS;
+            case MIDDLEGAME: return MIDDLEGAME_FENS;
+            case ENDGAME:    return ENDGAME_FENS;
+            default: throw new IllegalArgumentException("Unknown game phase: " + phase);
+        }
+    }
+
+}
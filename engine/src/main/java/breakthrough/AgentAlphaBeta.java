@@ -0,0 +1,238 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ *
+ * Agent using alpha-beta-search to think ahead.
+ *
+ * Optionally with a transposition table on State.getHashKey(), for cutoffs and to search the
+ * best move of an earlier search of the position first. As moves are State-specific objects,
+ * the table stores the index of the move in getActions( null ).
+ *
+ */
+public class AgentAlphaBeta implements Agent
+{
+    private static final int INFINITY_VALUE = 10001;
+    private static final int MAX_SEARCH_DEPTH = 100;
+
+    private boolean m_silent;
+    private long    m_depthLimit;
+    private long    m_nodeLimit;
+    private long    m_timeLimit;
+
+    private Random m_rng = new Random();
+    private PV m_pv;
+    private long m_nodes;
+    private long m_msec;
+    private boolean m_abort;
+    private TranspositionTable m_transTable; // null if disabled.
+    private long m_transHits;
+    private int  m_value;  // Of the last depth completed.
+
+    AgentAlphaBeta()
+    {
+        this( 0 );
+    }
+
+    AgentAlphaBeta( int hashMegabytes )
+    {
+        m_silent = true;
+        m_rng = new Random();
+        m_pv = new PV(MAX_SEARCH_DEPTH  + 1);
+        m_depthLimit = m_nodeLimit = m_timeLimit = 0;
+        setHashSize( hashMegabytes );
+    }
+
+    // Sets the size of the transposition table, 0 disables it.
+    public void setHashSize( int megabytes )
+    {
+        m_transTable = ( megabytes > 0 ? new TranspositionTable( megabytes ) : null );
+    }
+
+    // Nodes searched during the last search.
+    public long getNodes()
+    {
+        return m_nodes;
+    }
+
+    // Value of the root, for the side to move, at the last depth completed.
+    public int getValue()
+    {
+        return m_value;
+    }
+
+    public void setSilence( boolean on )
+    {
+        m_silent = on;
+    }
+
+    public void setThinklimit( long maxLimit, long maxNodes, long maxTimeMsec )
+    {
+        m_depthLimit = maxLimit;
+        m_nodeLimit = maxNodes;
+        m_timeLimit = maxTimeMsec;
+    }
+
+    public Move playMove( State state, Game gameHistory )
+    {
+        // Initialize stuff
+        m_msec = System.currentTimeMillis();
+        m_nodes = 0;
+        m_abort = false;
+        m_transHits = 0;
+        if ( m_transTable != null ) {
+            m_transTable.newSearch( DiscoveryState.PROGRESS_ANY );
+        }
+
+        Move bestMove = null;
+
+        // Non-determinism:
+        ArrayList<Move> moves = state.getActions(null);
+        bestMove = moves.get(m_rng.nextInt(moves.size()));
+
+        long maxDepth = m_depthLimit;
+        if (maxDepth == 0 || maxDepth > MAX_SEARCH_DEPTH) {
+            maxDepth = MAX_SEARCH_DEPTH;
+        }
+
+        for (int depth = 1; depth <= maxDepth && !m_abort; depth++) {
+             int value = alphaBeta(0, depth, -INFINITY_VALUE, INFINITY_VALUE, state, bestMove);
+            ArrayList<Move> pv = m_pv.getPV();
+
+            long msec = System.currentTimeMillis() - m_msec;
+            if ( !m_silent ) { System.out.printf( "\t%2d %10d %7d", depth, m_nodes, msec ); }
+            if ( !pv.isEmpty() && pv.get(0) != null ) {
+                if ( !m_silent ) { System.out.printf( " %+6d ", value ); }
+                for ( Move move : pv ) {
+                    if ( !m_silent ) { System.out.print( ' ' + move.toStr() ); }
+                }
+                bestMove = pv.get( 0 );
+            }
+            if ( !m_abort ) { m_value = value; }
+            if ( !m_silent ) { System.out.println(); }
+        }
+        if ( !m_silent && m_transTable != null ) {
+            System.out.println( "trans  : " + m_transHits );
+            System.out.println( "hash   : " + m_transTable.getUsage() / 10.0 + "%" );
+        }
+
+        return bestMove;
+    }
+
+    private int alphaBeta(int ply, int depth, int alpha, int beta, State state, Move firstMoveToLookAt) {
+        assert alpha >= -INFINITY_VALUE && alpha < beta && beta <= INFINITY_VALUE;
+
+        m_pv.set(ply);
+        m_nodes++;
+
+        if (depth <= 0 || state.isTerminal()) {
+            m_abort = reachedALimit();
+            return state.getEvaluation();
+        }
+
+        // Transposition table lookup (no cutoffs at the root, which must leave a PV).
+        long entry = TranspositionTable.NO_ENTRY;
+        if (m_transTable != null) {
+            entry = m_transTable.get(state.getHashKey());
+            if (entry != TranspositionTable.NO_ENTRY && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+                int type      = TranspositionTable.getType(entry);
+                int entryEval = TranspositionTable.getEval(entry);
+                if (type == AgentDiscovery.SCORE_EXACT
+                        || (type == AgentDiscovery.SCORE_LOWER && entryEval <= alpha)
+                        || (type == AgentDiscovery.SCORE_UPPER && entryEval >= beta)) {
+                    m_transHits++;
+                    return entryEval;
+                }
+            }
+        }
+
+        // The first move: the given one, else the best move of the transposition table entry.
+        ArrayList<Move> moves = state.getActions(null);
+        int first = (entry != TranspositionTable.NO_ENTRY ? TranspositionTable.getMove(entry) : -1);
+        if (firstMoveToLookAt != null) {
+            first = indexOf(moves, firstMoveToLookAt);
+        }
+        if (first < 0 || first >= moves.size()) {
+            first = 0;
+        }
+
+        int alphaOriginal = alpha;
+        int bestValue = Integer.MIN_VALUE;
+        int bestIndex = -1;
+        for (int k = 0; k < moves.size(); k++) {
+            int i = moveOrder(k, first);
+            Move move = moves.get(i);
+            state.make(move);
+            int value = -alphaBeta(ply + 1, depth - 1, -beta, -alpha, state, null);
+            state.retract(move);
+            if (m_abort) { break; }
+
+            if (value > bestValue) {
+                bestValue = value;
+                bestIndex = i;
+                m_pv.set(ply, move);
+            }
+
+            // Raising alpha?
+            if (bestValue > alpha) {
+                alpha = bestValue;
+                // Beta cutoff?
+                if (alpha >= beta) {
+                    // As in AgentDiscovery, SCORE_UPPER marks a beta cutoff (and SCORE_LOWER a fail low).
+                    store(state, AgentDiscovery.SCORE_UPPER, depth, bestValue, bestIndex);
+                    return beta;
+                }
+            }
+        }
+        if (!m_abort && bestIndex >= 0) {
+            store(state, bestValue > alphaOriginal ? AgentDiscovery.SCORE_EXACT : AgentDiscovery.SCORE_LOWER,
+                  depth, bestValue, bestIndex);
+        }
+        return bestValue;
+    }
+
+    private void store( State state, int type, int depth, int value, int moveIndex )
+    {
+        if ( m_transTable != null ) {
+            m_transTable.put( state.getHashKey(), DiscoveryState.PROGRESS_ANY, type, depth, value, moveIndex );
+        }
+    }
+
+    // Index of the k-th move to search: move 'first', then the others in generation order.
+    static int moveOrder( int k, int first )
+    {
+        return ( k == 0 ? first : ( k <= first ? k - 1 : k ) );
+    }
+
+    // Moves are compared on their index, so 'move' need not be the instance in 'moves'.
+    static int indexOf( ArrayList<Move> moves, Move move )
+    {
+        int index = move.getIndex();
+        for ( int i=0; i<moves.size(); ++i ) {
+            if ( moves.get(i).getIndex() == index ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean reachedALimit()
+    {
+        if ( (m_nodeLimit > 0) && (m_nodes >= m_nodeLimit) ) {
+            return true;
+        }
+        if ( (m_timeLimit > 0) && ((m_nodes % 1000) == 0) ) {
+            if ( (System.currentTimeMillis() - m_msec) >= m_timeLimit ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getName() {
+        return "AlphaBeta";
+    }
+
+}
@@ -0,0 +1,408 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agent Discovery!
+ *
+ * (1) Bitboard state representation
+ * (2) Move ordering
+ * (3) Transposition table
+ * (4) Quiescence search
+ * (5) Lazy SMP: helper threads search the same root at staggered depths and share the
+ *     transposition table; the main thread's result is played.
+ *
+ * @author Hrafn Eiriksson <hrafne (at) gmail.com>
+ */
+public class AgentDiscovery implements Agent {
+
+    // Constants
+    private static final int INFINITY_VALUE   = 10001;
+    private static final int MAX_SEARCH_DEPTH = 100;
+    private static final int MAX_PLY          = MAX_SEARCH_DEPTH + DiscoveryState.NO_OF_SQUARES; // Incl. qsearch.
+    private static final Random random        = new Random();
+
+    public static final int SCORE_LOWER = 0;
+    public static final int SCORE_UPPER = 1;
+    public static final int SCORE_EXACT = 2;
+
+    // Member variables
+    private long        m_msec;
+    private volatile boolean abort;
+    private boolean     m_silent;
+    private long        m_depthLimit;
+    private long        m_nodeLimit;
+    private long        m_timeLimit;
+    private int         m_depth;     // Last depth the main thread completed.
+
+    private Searcher[]  searchers;   // searchers[0] runs on the calling thread, the rest are helpers.
+
+    public  DiscoveryState     state; // The main thread's state.
+    private TranspositionTable transTable;
+
+    public AgentDiscovery() {
+        this(1);
+    }
+
+    public AgentDiscovery(int threads) {
+        m_silent = true;
+        m_depthLimit = m_nodeLimit = m_timeLimit = 0;
+
+        // Searchers and the (shared) transposition table.
+        setThreads(threads);
+        transTable = new TranspositionTable(32);
+    }
+
+    // Sets the number of search threads, the calling thread included.
+    public void setThreads(int threads) {
+        searchers = new Searcher[Math.max(1, threads)];
+        for (int i = 0; i < searchers.length; i++) {
+            searchers[i] = new Searcher(i);
+        }
+        state = searchers[0].state;
+    }
+
+    public int getThreads() {
+        return searchers.length;
+    }
+
+    // Nodes searched by all threads during the last (or current) search; during a search, as
+    // last published by each thread (see Searcher.countNode()).
+    public long getNodes() {
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.publishedNodes.getAcquire();
+        }
+        return nodes;
+    }
+
+    // Depth the last search completed.
+    public int getDepth() {
+        return m_depth;
+    }
+
+    /*
+     * Go think!
+     */
+    public Move playMove(State otherState, Game history) {
+
+        // Initialize stuff
+        m_msec    = System.currentTimeMillis();
+        m_depth   = 0;
+        abort     = false;
+
+        // Set our internal states up accordingly.
+        for (Searcher searcher : searchers) {
+            searcher.setup(otherState);
+        }
+
+        // Keeps the transposition table from the previous moves, but ages its entries.
+        transTable.newSearch(state.getProgress());
+
+        // Non-determinism:
+        ArrayList<Integer> moves = state.getAllMoves(DiscoveryMove.MOVE_NONE);
+        int bestMove = moves.get(random.nextInt(moves.size()));
+
+        long maxDepth = m_depthLimit;
+        if (maxDepth == 0 || maxDepth > MAX_SEARCH_DEPTH) {
+            maxDepth = MAX_SEARCH_DEPTH;
+        }
+
+        // Start the helpers; they run until the main thread is done.
+        Thread[] helpers = new Thread[searchers.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            searchers[i + 1].maxDepth = (int) maxDepth;
+            helpers[i] = new Thread(searchers[i + 1], "discovery-helper-" + (i + 1));
+            helpers[i].start();
+        }
+
+        Searcher main = searchers[0];
+        if (!m_silent) System.out.println("To move: " + getName());
+        for (int depth = 1; depth <= maxDepth && !abort; depth++) {
+            int value = main.search(0, depth, -INFINITY_VALUE, INFINITY_VALUE, bestMove);
+            ArrayList<Integer> pv = main.pv.getPV();
+
+            long msec = System.currentTimeMillis() - m_msec;
+            if ( !m_silent ) { System.out.printf( "\t%2d %10d %7d", depth, getNodes(), msec ); }
+            if ( !pv.isEmpty() && pv.get(0) != null ) {
+                if ( !m_silent ) { System.out.printf( " %+6d ", value ); }
+                for ( int move : pv ) {
+                    if ( !m_silent ) { System.out.print( ' ' + DiscoveryMove.stringify(move) ); }
+                }
+                bestMove = pv.get( 0 );
+            }
+            if ( !abort ) { m_depth = depth; }
+            if ( !m_silent ) { System.out.println(); }
+        }
+
+        main.publishedNodes.setRelease(main.nodes);
+
+        // Stop the helpers.
+        abort = true;
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (!m_silent) {
+            long qnodes = 0;
+            long transHits = 0;
+            for (Searcher searcher : searchers) {
+                qnodes += searcher.qnodes;
+                transHits += searcher.transHits;
+            }
+            System.out.println("nodes  : " + getNodes() + (searchers.length > 1 ? " (main " + main.nodes + ")" : ""));
+            System.out.println("qnodes : " + qnodes);
+            System.out.println("trans  : " + transHits);
+            System.out.println("hash   : " + transTable.getUsage() / 10.0 + "% ("
+                    + transTable.getReachable() / 10.0 + "% reachable)");
+        }
+
+        // Apply the move to our internal state.
+        state.make(bestMove);
+
+        // Serialize the move to the external move representation.
+        Move serialized = DiscoveryMove.serialize(bestMove);
+        assert serialized.toStr().equals(DiscoveryMove.stringify(bestMove));
+        return serialized;
+    }
+
+    public String getName() {
+        return "Discovery";
+    }
+
+    public void setSilence(boolean on) {
+        m_silent = on;
+    }
+
+    public void setThinklimit(long maxLimit, long maxNodes, long maxTimeMsec) {
+        m_depthLimit = maxLimit;
+        m_nodeLimit  = maxNodes;
+        m_timeLimit  = maxTimeMsec;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Searcher
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Searcher
+     *
+     * The state, PV, move stack and counters of one search thread. Helpers (id > 0) run their
+     * own iterative deepening, odd ones a ply ahead of even ones, until the main thread aborts.
+     */
+    private class Searcher implements Runnable {
+
+        private final int            id;
+        private final DiscoveryState state = new DiscoveryState();
+        private final DiscoveryPV    pv    = new DiscoveryPV(MAX_SEARCH_DEPTH + 1);
+        private final int[]          moveStack = new int[MAX_PLY * DiscoveryState.MAX_MOVES]; // MAX_MOVES moves for each ply.
+
+        private int  maxDepth;
+        private long nodes;
+        private long qnodes;
+        private long checkedNodes;   // 'nodes' at the last node limit check, with helpers.
+        private final AtomicLong publishedNodes = new AtomicLong(); // 'nodes', for other threads.
+        private long transHits;
+
+        Searcher(int id) {
+            this.id = id;
+        }
+
+        void setup(State root) {
+            PositionCodec.copy(root, state);
+            nodes     = 0;
+            qnodes    = 0;
+            checkedNodes = 0;
+            publishedNodes.set(0);
+            transHits = 0;
+        }
+
+        public void run() {
+            for (int depth = 1 + (id & 1); depth <= maxDepth && !abort; depth++) {
+                search(0, depth, -INFINITY_VALUE, INFINITY_VALUE, DiscoveryMove.MOVE_NONE);
+            }
+            publishedNodes.setRelease(nodes);
+        }
+
+        // Counts a node, and publishes the count every 1000 nodes.
+        private void countNode() {
+            if ((++nodes % 1000) == 0) {
+                publishedNodes.setRelease(nodes);
+            }
+        }
+
+        /*
+         * Normal alpha-beta search.
+         */
+        private int search(int ply, int depth, int alpha, int beta, int firstMoveToLookAt) {
+            assert alpha >= -INFINITY_VALUE && alpha < beta && beta <= INFINITY_VALUE;
+
+            countNode();
+            int eval = 0;
+            pv.set(ply);
+
+            // Transposition table lookup (no cutoffs at the root, which must leave a PV).
+            long entry = transTable.get(state.key);
+            if (entry != TranspositionTable.NO_ENTRY && ply > 0) {
+                if (TranspositionTable.getDepth(entry) >= depth) {
+                    transHits++;
+                    int type      = TranspositionTable.getType(entry);
+                    int entryEval = TranspositionTable.getEval(entry);
+                    if (type == SCORE_EXACT) {
+                        return entryEval;
+                    } else if (type == SCORE_LOWER && entryEval <= alpha) {
+                        return entryEval;
+                    } else if (type == SCORE_UPPER && entryEval >= beta) {
+                        return entryEval;
+                    }
+                }
+            }
+
+            // Decide what move to consider first.
+            int firstMove = DiscoveryMove.MOVE_NONE;
+            if (firstMoveToLookAt != DiscoveryMove.MOVE_NONE) {
+                firstMove = firstMoveToLookAt;
+            } else if (TranspositionTable.getMove(entry) != DiscoveryMove.MOVE_NONE) {
+                firstMove = TranspositionTable.getMove(entry);
+            }
+
+            // Terminal position?
+            if (state.isTerminal()) {
+                if (reachedALimit()) { abort = true; }
+                return state.getEvaluation();
+            }
+
+            // Horizon? Quiescence search!
+            if (depth <= 0) {
+                eval = qsearch(ply, alpha, beta, DiscoveryMove.MOVE_NONE);
+                transTable.putLeaf(state.key, state.getProgress(), eval, alpha, beta);
+                if (reachedALimit()) { abort = true; }
+                return eval;
+            }
+
+            // Do null move pruning?
+            /*
+            if (depth >= 2
+                    && beta < INFINITY_VALUE
+                    && nmAllowed
+                    && Long.bitCount(state.BP | state.WP) > 14) {
+
+                state.makeNullMove();
+                eval = -alphaBeta(ply + 1, depth - 3, -beta, -alpha, state, null, false);
+                state.retractNullMove();
+
+                if (eval >= beta) {
+                    return eval;
+                }
+            }
+            */
+
+            // Normal search
+            int scoreType = SCORE_LOWER;
+            int bestMove  = DiscoveryMove.MOVE_NONE;
+            int bestValue = Integer.MIN_VALUE;
+            int offset = ply * DiscoveryState.MAX_MOVES;
+            int count  = state.getAllMoves(moveStack, offset, firstMove);
+            for (int i = offset; i < offset + count; i++) {
+                int move = moveStack[i];
+                state.make(move);
+                assert DiscoveryZobrist.getZobristKey(state) == state.key;
+                eval = -search(ply + 1, depth - 1, -beta, -alpha, DiscoveryMove.MOVE_NONE);
+                state.retract(move);
+                if (abort) { break; }
+
+                if (eval > bestValue) {
+                    pv.set(ply, move);
+                    if (eval >= beta) {
+                        transTable.put(state.key, state.getProgress(), SCORE_UPPER, depth, eval, move);
+                        return beta;
+                    }
+                    bestValue = eval;
+                    bestMove = move;
+                    if (eval > alpha) {
+                        scoreType = SCORE_EXACT;
+                        alpha = eval;
+                    }
+                }
+            }
+
+            // Updates the transposition table.
+            if (!abort) {
+                if (scoreType == SCORE_EXACT) {
+                    transTable.put(state.key, state.getProgress(), SCORE_EXACT, depth, eval, bestMove);
+                } else {
+                    transTable.put(state.key, state.getProgress(), SCORE_LOWER, depth, eval, bestMove);
+                }
+            }
+
+            return bestValue;
+        }
+
+        /*
+         * Quiescence search.
+         */
+        private int qsearch(int ply, int alpha, int beta, int firstMoveToLookAt) {
+            countNode();
+            qnodes++;
+
+            if (state.isTerminal()) return state.getEvaluation();
+
+            int eval = state.getEvaluation();
+            if (eval >= beta) {
+                return beta;
+            }
+            if (eval > alpha) {
+                alpha = eval;
+            }
+
+            // Generate captures.
+            int offset = ply * DiscoveryState.MAX_MOVES;
+            int count  = state.getCaptureMoves(moveStack, offset, firstMoveToLookAt);
+            for (int i = offset; i < offset + count; i++) {
+                int move = moveStack[i];
+                state.make(move);
+                eval = -qsearch(ply + 1, -beta, -alpha, DiscoveryMove.MOVE_NONE);
+                state.retract(move);
+
+                if (eval >= beta) {
+                    return beta; // Beta cutoff.
+                }
+                if (eval > alpha) {
+                    alpha = eval;
+                }
+            }
+            return alpha;
+        }
+
+        private boolean reachedALimit() {
+            // With helpers, the published node counts of all threads are summed after every
+            // 1000 nodes of this one.
+            if ( m_nodeLimit > 0 ) {
+                if ( searchers.length == 1 ) {
+                    if ( nodes >= m_nodeLimit ) {
+                        return true;
+                    }
+                }
+                else if ( nodes - checkedNodes >= 1000 ) {
+                    checkedNodes = nodes;
+                    if ( getNodes() >= m_nodeLimit ) {
+                        return true;
+                    }
+                }
+            }
+            if ( (m_timeLimit > 0) && ((nodes % 1000) == 0) ) {
+                if ( (java.lang.System.currentTimeMillis() - m_msec) >= m_timeLimit ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
@@ -1,3 +1,5 @@
+package breakthrough;
+
 import java.util.ArrayList;
 import java.util.Random;
 
@@ -45,7 +47,7 @@ public class AgentDiscoveryBefore implements Agent {
 
         // State and transposition table.
         state = new DiscoveryState();
-        transTable = new TranspositionTable(2 << 18);
+        transTable = new TranspositionTable(8);
     }
 
     /*
@@ -61,7 +63,7 @@ public class AgentDiscoveryBefore implements Agent {
         transHits = 0;
 
         // Set our internal state up accordingly.
-        state.setup(otherState.toString());
+        PositionCodec.copy(otherState, state);
 
         // Clears the transposition table.
         transTable.clear();
@@ -116,16 +118,18 @@ public class AgentDiscoveryBefore implements Agent {
         m_pv.set(ply);
 
         // Transposition table lookup.
-        TranspositionTable.HashEntry entry = transTable.get(state.key);
-        if (entry != null) {
-            if (entry.depth >= depth) {
+        long entry = transTable.get(state.key);
+        if (entry != TranspositionTable.NO_ENTRY) {
+            if (TranspositionTable.getDepth(entry) >= depth) {
                 transHits++;
-                if (entry.type == SCORE_EXACT) {
-                    return entry.eval;
-                } else if (entry.type == SCORE_LOWER && entry.eval <= alpha) {
-                    return entry.eval;
-                } else if (entry.type == SCORE_UPPER && entry.eval >= beta) {
-                    return entry.eval;
+                int type      = TranspositionTable.getType(entry);
+                int entryEval = TranspositionTable.getEval(entry);
+                if (type == SCORE_EXACT) {
+                    return entryEval;
+                } else if (type == SCORE_LOWER && entryEval <= alpha) {
+                    return entryEval;
+                } else if (type == SCORE_UPPER && entryEval >= beta) {
+                    return entryEval;
                 }
             }
         }
@@ -134,8 +138,8 @@ public class AgentDiscoveryBefore implements Agent {
         int firstMove = DiscoveryMove.MOVE_NONE;
         if (firstMoveToLookAt != DiscoveryMove.MOVE_NONE) {
             firstMove = firstMoveToLookAt;
-        } else if (entry != null && entry.move != DiscoveryMove.MOVE_NONE) {
-            firstMove = entry.move;
+        } else if (TranspositionTable.getMove(entry) != DiscoveryMove.MOVE_NONE) {
+            firstMove = TranspositionTable.getMove(entry);
         }
 
 
@@ -148,7 +152,7 @@ public class AgentDiscoveryBefore implements Agent {
         // Horizon? Quiescence search!
         if (depth <= 0) {
             eval = qsearch(ply, alpha, beta, DiscoveryMove.MOVE_NONE);
-            transTable.putLeaf(state.key, eval, alpha, beta);
+            transTable.putLeaf(state.key, state.getProgress(), eval, alpha, beta);
             abort = reachedALimit();
             return eval;
         }
@@ -185,7 +189,7 @@ public class AgentDiscoveryBefore implements Agent {
             if (eval > bestValue) {
                 m_pv.set(ply, move);
                 if (eval >= beta) {
-                    transTable.put(state.key, SCORE_UPPER, depth, eval, move);
+                    transTable.put(state.key, state.getProgress(), SCORE_UPPER, depth, eval, move);
                     return beta;
                 }
                 bestValue = eval;
@@ -205,7 +209,7 @@ public class AgentDiscoveryBefore implements Agent {
             if (bestValue > alpha) {
                 alpha = bestValue;
                 if (alpha >= beta) {
-                    transTable.put(state.key, SCORE_UPPER, depth, eval, move);
+                    transTable.put(state.key, state.getProgress(), SCORE_UPPER, depth, eval, move);
                     return beta;
                 }
             }
@@ -215,9 +219,9 @@ public class AgentDiscoveryBefore implements Agent {
         // Updates the transposition table.
         if (!abort) {
             if (scoreType == SCORE_EXACT) {
-                transTable.put(state.key, SCORE_EXACT, depth, eval, bestMove);
+                transTable.put(state.key, state.getProgress(), SCORE_EXACT, depth, eval, bestMove);
             } else {
-                transTable.put(state.key, SCORE_LOWER, depth, eval, bestMove);
+                transTable.put(state.key, state.getProgress(), SCORE_LOWER, depth, eval, bestMove);
             }
         }
 
@@ -0,0 +1,660 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Agent using MCTS to think ahead.
+ *
+ * The tree (an MCTSTree, in arrays or off the heap, of a limited size) is kept between moves:
+ * the next search walks the root down the moves played since (see advanceRoot), and only
+ * starts a new tree if the position is not in it.
+ *
+ * With several threads (setThreads) the search is tree-parallel: all threads search the one
+ * tree, updating it atomically, and a virtual loss on the nodes a thread is searching turns
+ * the others towards other branches. With Parallelism.Root every thread searches a tree of its
+ * own instead (with its share of the memory), sharing nothing, and the statistics of the root
+ * children are added up over the trees before the move is chosen. With Parallelism.Leaf one
+ * thread searches the tree, and every leaf it reaches is played out a batch of times by all
+ * threads, the results being backed up at once.
+ *
+ */
+public class AgentMCTS implements Agent {
+
+    public enum RootMoveSelector {
+        MostVisits,
+        HighestAverage
+    }
+
+    public enum Parallelism {
+        Tree,   // All threads search one tree.
+        Root,   // Every thread searches its own tree.
+        Leaf    // One thread searches the tree, all play the leaves out.
+    }
+
+    private static final Random random = new Random();
+    private static final double EXPLORATION_CONSTANT = 5000;
+    private static final int    DEFAULT_TREE_SIZE    = 128; // MB
+    private static final int    DEFAULT_VIRTUAL_LOSS = 1;   // Lost simulations per searching thread.
+    private static final int    DEFAULT_LEAF_BATCH   = 8;   // Playouts per leaf, with Parallelism.Leaf.
+
+    // Configuration stuff
+    private RootMoveSelector rootMoveSelector;
+
+    private boolean m_silent;
+    private long    m_depthLimit;
+    private long    m_nodeLimit;
+    private long    m_timeLimit;
+
+    private long m_msec;
+    private LongAdder m_nodes = new LongAdder();       // Added to the tree, see Worker.countNodes().
+    private LongAdder m_simulations = new LongAdder();
+    private volatile boolean m_abort;
+
+    // Playouts
+    private boolean m_bitboardPlayouts = true;
+
+    // Threads
+    private Worker[]    m_workers;   // m_workers[0] runs on the calling thread.
+    private int         m_virtualLoss = DEFAULT_VIRTUAL_LOSS;
+    private Parallelism m_parallelism = Parallelism.Tree;
+    private int         m_leafBatch = DEFAULT_LEAF_BATCH;
+    private ExecutorService m_pool;  // Runs m_workers[1...] with Parallelism.Leaf.
+    private final ArrayList<Future<Long>> m_leafResults = new ArrayList<>();
+
+    // Trees
+    private long       m_treeBytes = DEFAULT_TREE_SIZE * (1L << 20); // Of all trees together.
+    private boolean    m_offHeap;
+    private MCTSTree[] m_trees;      // One, or one per thread with Parallelism.Root.
+
+    // Tree reuse
+    private boolean  m_reuseTree = true;
+    private State    m_rootState;     // The position of the roots of the last search ...
+    private int      m_rootHistory;   // ... and the number of moves played before it.
+
+    public AgentMCTS () {
+        m_silent = true;
+        rootMoveSelector = RootMoveSelector.MostVisits;
+        setThreads(1);
+    }
+
+    public AgentMCTS(RootMoveSelector rms) {
+        this.rootMoveSelector = rms;
+        setThreads(1);
+    }
+
+    // Sets the number of search threads, the calling thread included. Discards the tree.
+    public void setThreads(int threads) {
+        configure(Math.max(1, threads));
+    }
+
+    public int getThreads() {
+        return m_workers.length;
+    }
+
+    // Sets the virtual loss of a tree-parallel search: the lost simulations added to every node
+    // a thread is searching, until its result is backed up.
+    public void setVirtualLoss(int simulations) {
+        m_virtualLoss = Math.max(0, simulations);
+    }
+
+    // Sets how several threads search (Parallelism.Tree by default). Discards the tree.
+    public void setParallelism(Parallelism parallelism) {
+        m_parallelism = parallelism;
+        configure(getThreads());
+    }
+
+    public Parallelism getParallelism() {
+        return m_parallelism;
+    }
+
+    // Sets the playouts of every leaf with Parallelism.Leaf, shared out over the threads.
+    public void setLeafBatch(int playouts) {
+        m_leafBatch = Math.max(1, playouts);
+    }
+
+    // Simulations during the last search, by all threads.
+    public long getSimulations() {
+        long simulations = 0;
+        for (Worker worker : m_workers) {
+            simulations += worker.simulations;
+        }
+        return simulations;
+    }
+
+    // Keeps the tree between moves (on by default).
+    public void setTreeReuse(boolean on) {
+        m_reuseTree = on;
+        if (!on) {
+            for (MCTSTree tree : m_trees) {
+                tree.clear();
+            }
+            m_rootState = null;
+        }
+    }
+
+    // Plays the random games out on bitboards (see RandomPlayout), on boards of up to 64 squares
+    // (on by default); otherwise with the State's move lists.
+    public void setBitboardPlayouts(boolean on) {
+        m_bitboardPlayouts = on;
+    }
+
+    // Limits the tree to 'megabytes' of memory; when it is full, the least visited subtrees are
+    // pruned (see MCTSTree). With Parallelism.Root the trees share the memory. Discards the tree.
+    public void setTreeSize(int megabytes) {
+        m_treeBytes = megabytes * (1L << 20);
+        configure(getThreads());
+    }
+
+    // Stores the tree off the heap (or in arrays on it, the default). Discards the tree.
+    public void setOffHeap(boolean on) {
+        m_offHeap = on;
+        configure(getThreads());
+    }
+
+    // Sets up new trees and the workers searching them.
+    private void configure(int threads) {
+        // Drops the old trees first, so their memory can be reclaimed for the new ones.
+        m_workers = null;
+        m_trees = new MCTSTree[m_parallelism == Parallelism.Root ? threads : 1];
+        for (int i = 0; i < m_trees.length; i++) {
+            long limit = m_treeBytes / m_trees.length;
+            m_trees[i] = (m_offHeap ? new OffHeapMCTSTree(limit) : new ArrayMCTSTree(limit));
+        }
+        boolean concurrent = (m_parallelism == Parallelism.Tree && threads > 1);
+        m_workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            m_workers[i] = new Worker(random.nextLong(), m_trees[i % m_trees.length], concurrent);
+        }
+        m_rootState = null;
+
+        // The threads playing leaves out for m_workers[0] (daemons, since an agent is not closed).
+        if (m_pool != null) {
+            m_pool.shutdown();
+            m_pool = null;
+        }
+        if (m_parallelism == Parallelism.Leaf && threads > 1) {
+            m_pool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "mcts-leaf-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void setSilence(boolean on) {
+        m_silent = on;
+    }
+
+    public void setThinklimit(long maxLimit, long maxNodes, long maxTimeMsec) {
+        m_depthLimit = maxLimit;
+        m_nodeLimit  = maxNodes;
+        m_timeLimit  = maxTimeMsec;
+    }
+
+    public Move playMove(State state, Game gameHistory) {
+        m_msec = System.currentTimeMillis();
+        m_nodes.reset();
+        m_simulations.reset();
+        m_abort = false;
+
+        // TODO: Deterministic mode!
+        // random.setSeed(3);
+
+        int[] roots = advanceRoots(state, gameHistory);
+        if (!m_silent) {
+            long reused = 0;
+            for (int i = 0; i < m_trees.length; i++) {
+                reused += m_trees[i].getVisits(roots[i]);
+            }
+            System.out.println("Reused simulations: " + reused);
+        }
+        Move move = UCTSearch(roots, state);
+        if (!m_silent) System.out.println("No of simulations: " + getSimulations()
+                + (m_workers.length > 1 ? " (" + m_workers.length + " threads)" : ""));
+        if (!m_silent) {
+            long nodes = 0, bytes = 0, limit = 0, prunedNodes = 0, prunes = 0;
+            for (MCTSTree tree : m_trees) {
+                nodes += tree.size();
+                bytes += tree.getBytesUsed();
+                limit += tree.getMemoryLimit();
+                prunedNodes += tree.getPrunedNodes();
+                prunes += tree.getPrunes();
+            }
+            System.out.printf("Tree size: %d nodes, %.1f of %.1f MB%s%s%n", nodes,
+                    bytes / 1048576.0, limit / 1048576.0, m_offHeap ? " (off-heap)" : "",
+                    m_trees.length > 1 ? " in " + m_trees.length + " trees" : "");
+            System.out.println("Pruned: " + prunedNodes + " nodes in " + prunes + " prunes");
+        }
+        return move;
+    }
+
+    // Returns the node of the current position in every tree of the last search, found by
+    // playing the moves made since then (our move and the opponent's reply) from its root, or the
+    // root of a new tree if the position is not in it. The rest of the old trees is freed.
+    private int[] advanceRoots(State state, Game game) {
+        ArrayList<Move> history = (m_reuseTree && m_rootState != null && game != null
+                                   && m_rootHistory <= game.getMoveHistory().size() ? game.getMoveHistory() : null);
+        boolean verified = false;
+        int[] roots = new int[m_trees.length];
+        for (int t = 0; t < m_trees.length; t++) {
+            MCTSTree tree = m_trees[t];
+            int node = (history != null ? tree.getRoot() : MCTSTree.NONE);
+            for (int i = m_rootHistory; node != MCTSTree.NONE && i < history.size(); i++) {
+                node = tree.findChild(node, history.get(i));
+            }
+            // The same position (e.g. not a new game with as many moves)? The moves are legal,
+            // they are in the tree.
+            if (node != MCTSTree.NONE && !verified) {
+                for (int i = m_rootHistory; i < history.size(); i++) {
+                    m_rootState.make(history.get(i));
+                }
+                verified = true;
+                if (m_rootState.getHashKey() != state.getHashKey()) {
+                    history = null;
+                    node = MCTSTree.NONE;
+                }
+            }
+            if (node == MCTSTree.NONE) {
+                tree.clear();
+                roots[t] = tree.getRoot();
+            } else {
+                roots[t] = tree.setRoot(node);
+            }
+        }
+
+        m_rootState   = (m_reuseTree ? state.copy() : null);
+        m_rootHistory = (game != null ? game.getMoveHistory().size() : 0);
+        return roots;
+    }
+
+    private Move UCTSearch(int[] roots, State rootState) {
+        for (int i = 0; i < m_workers.length; i++) {
+            m_workers[i].setup(roots[i % roots.length], rootState);
+        }
+
+        if (m_workers.length == 1 || m_parallelism == Parallelism.Leaf) {
+            m_workers[0].run();
+        } else {
+            // Tree parallelization: the workers search the tree together, the calling thread
+            // being the first. The tree is only pruned in between, and its storage must not be
+            // resized during the search. Root parallelization: every worker searches its own tree.
+            if (m_trees.length == 1) {
+                if (m_trees[0].isNearlyFull()) {
+                    m_trees[0].prune();
+                }
+                m_trees[0].reserve();
+            }
+            Thread[] helpers = new Thread[m_workers.length - 1];
+            for (int i = 0; i < helpers.length; i++) {
+                helpers[i] = new Thread(m_workers[i + 1], "mcts-worker-" + (i + 1));
+                helpers[i].start();
+            }
+            m_workers[0].run();
+            for (Thread helper : helpers) {
+                try {
+                    helper.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        if (m_trees.length == 1) {
+            MCTSTree tree = m_trees[0];
+            int v0 = roots[0];
+            int first = tree.getFirstChild(v0);
+            for (int child = first; child < first + tree.getChildCount(v0); child++) {
+                if (!m_silent) System.out.println(tree.getMove(child).toStr() + ": " + tree.getValue(child) + " / " + tree.getVisits(child) + " = " + (tree.getVisits(child) > 0 ? tree.getValue(child) / tree.getVisits(child) : 0));
+            }
+
+            if (rootMoveSelector == RootMoveSelector.MostVisits) {
+                int best = tree.mostVisitedChild(v0);
+                assert best != MCTSTree.NONE;
+                return tree.getMove(best);
+            }
+            // else rms = HighestAverage:
+            return tree.getMove(tree.bestChild(v0, 0));
+        }
+        return mergeRoots(roots);
+    }
+
+    // Root parallelization: adds the visits and values of the root children up over the trees
+    // and chooses the move from the sums.
+    private Move mergeRoots(int[] roots) {
+        // The moves, from a tree with an expanded root (the same in every tree that has one).
+        int t0 = 0;
+        while (t0 < m_trees.length - 1 && !m_trees[t0].isExpanded(roots[t0])) {
+            t0++;
+        }
+        int first = m_trees[t0].getFirstChild(roots[t0]);
+        int count = m_trees[t0].getChildCount(roots[t0]);
+        Move[] moves  = new Move[count];
+        long[] visits = new long[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = m_trees[t0].getMove(first + i);
+        }
+
+        for (int t = 0; t < m_trees.length; t++) {
+            MCTSTree tree = m_trees[t];
+            int bestChild = tree.mostVisitedChild(roots[t]);
+            if (!m_silent) System.out.println("Tree " + t + ": " + m_workers[t].simulations + " simulations, "
+                    + tree.size() + " nodes, best "
+                    + (bestChild != MCTSTree.NONE ? tree.getMove(bestChild).toStr() + " (" + tree.getVisits(bestChild) + " visits)" : "-"));
+            if (!tree.isExpanded(roots[t])) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                int child = tree.findChild(roots[t], moves[i]);
+                if (child != MCTSTree.NONE) {
+                    visits[i] += tree.getVisits(child);
+                    values[i] += tree.getValue(child);
+                }
+            }
+        }
+
+        int best = -1;
+        for (int i = 0; i < count; i++) {
+            if (!m_silent) System.out.println(moves[i].toStr() + ": " + values[i] + " / " + visits[i] + " = " + (visits[i] > 0 ? values[i] / visits[i] : 0));
+            if (rootMoveSelector == RootMoveSelector.MostVisits) {
+                if (best < 0 || visits[i] > visits[best]) {
+                    best = i;
+                }
+            } else if (visits[i] > 0 && (best < 0 || (double) values[i] / visits[i] > (double) values[best] / visits[best])) {
+                best = i;
+            }
+        }
+        assert best >= 0;
+        return moves[best];
+    }
+
+    private static int oppColor(int color) {
+        return color ^ 1;
+    }
+
+    private boolean reachedALimit() {
+        if (m_abort) {
+            return true;
+        }
+        if (m_depthLimit > 0 && m_simulations.sum() >= m_depthLimit) {
+            return m_abort = true;
+        }
+        if (m_nodeLimit > 0 && m_nodes.sum() >= m_nodeLimit) {
+            return m_abort = true;
+        }
+        if (m_timeLimit > 0) {
+            if ((System.currentTimeMillis() - m_msec) >= m_timeLimit ) {
+                return m_abort = true;
+            }
+        }
+        return false;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Worker
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Worker
+     *
+     * The state, playout engine and move path of one search thread. A single worker runs the
+     * plain search, which also prunes the tree when it is full; several share the tree (see
+     * setThreads) with atomic updates and virtual losses, or each run the plain search on a
+     * tree of their own (see setParallelism).
+     */
+    private class Worker implements Runnable {
+
+        private final Random   random;
+        private final MCTSTree tree;
+        private final boolean  concurrent;
+        private long  simulations;
+        private long  nodes;     // Added to the tree in this search.
+        private RandomPlayout playout;
+        private State state;     // A copy of the root position, restored after every iteration.
+        private int   root;
+
+        // Moves made since the root position, see makeOnPath().
+        private Move[] path = new Move[256];
+        private int    pathLength;
+
+        Worker(long seed, MCTSTree tree, boolean concurrent) {
+            this.random     = new Random(seed);
+            this.tree       = tree;
+            this.concurrent = concurrent;
+        }
+
+        void setup(int root, State rootState) {
+            this.root  = root;
+            this.state = rootState.copy();
+            simulations = 0;
+            nodes = 0;
+            if (playout != null && !playout.fits(state)) {
+                playout = null;
+            }
+        }
+
+        // Runs at least one iteration, so the root is expanded even when the limit has passed
+        // while the search was set up (e.g. reserving the tree).
+        public void run() {
+            do {
+                if (concurrent) {
+                    int v1 = treePolicyConcurrent(root);
+                    int delta = defaultPolicy();
+                    tree.backupConcurrently(v1, delta, m_virtualLoss);
+                } else {
+                    if (tree.isNearlyFull()) {
+                        tree.prune();
+                    }
+                    int v1 = treePolicy(root);
+                    if (m_parallelism == Parallelism.Leaf && !state.isTerminal()) {
+                        tree.backup(v1, leafPlayouts(), m_leafBatch);
+                    } else {
+                        int delta = defaultPolicy();
+                        tree.backup(v1, delta);
+                    }
+                }
+                retractPath();
+            } while (!(m_trees.length > 1 ? reachedOwnLimit() : reachedALimit()));
+        }
+
+        private int treePolicy(int node) {
+
+            while (!state.isTerminal()) {
+                if (!tree.isExpanded(node)) {
+                    tree.expand(node, state.getActions(null));
+                    if (!tree.isExpanded(node)) {
+                        break; // No moves.
+                    }
+                    countNodes(tree.getChildCount(node));
+                }
+                // Checks whether the node IS ___FULLY___ EXPANDED.
+                if (!tree.isFullyExpanded(node)) {
+                    int out = tree.nextUnexplored(node);
+                    makeOnPath(tree.getMove(out));
+                    return out;
+                } else {
+                    node = tree.bestChild(node, EXPLORATION_CONSTANT);
+                    makeOnPath(tree.getMove(node));
+                }
+            }
+
+
+            return node;
+        }
+
+        // treePolicy() while other threads search the same tree: a node being expanded by
+        // another thread is a leaf for now, and every node entered gets a virtual loss.
+        private int treePolicyConcurrent(int node) {
+
+            while (!state.isTerminal()) {
+                int first = tree.getFirstChildConcurrently(node);
+                if (first == MCTSTree.NONE) {
+                    first = tree.expandConcurrently(node, state.getActions(null));
+                    if (first >= 0) {
+                        countNodes(tree.getChildCount(node));
+                    }
+                }
+                if (first < 0) {
+                    break; // Being expanded, no moves or no room.
+                }
+                int next = tree.claimUnexplored(node);
+                boolean unexplored = (next != MCTSTree.NONE);
+                if (!unexplored) {
+                    next = tree.bestChild(node, EXPLORATION_CONSTANT);
+                }
+                tree.addVirtualLoss(next, m_virtualLoss);
+                makeOnPath(tree.getMove(next));
+                node = next;
+                if (unexplored) {
+                    break;
+                }
+            }
+
+            return node;
+        }
+
+        private int defaultPolicy() {
+            int initialSideToMove = oppColor(state.getPlayerToMove());
+
+            // Boards of up to 64 squares are played out on bitboards.
+            if (!state.isTerminal() && m_bitboardPlayouts) {
+                if (playout == null) {
+                    playout = RandomPlayout.of(state, random);
+                }
+                if (playout != null) {
+                    countSimulation();
+                    return (playout.play(state) == initialSideToMove ? State.WIN_VALUE : State.LOSS_VALUE);
+                }
+            }
+
+            while (!state.isTerminal()) {
+                // Commenting this out generates beautiful ASCII waterfalls:
+                // System.out.println(state.toString());
+                ArrayList<Move> moves = state.getActions(null);
+
+                if (moves.size() == 0) {
+                    state.display();
+                }
+
+                // Choose a move at random.
+                Move move = moves.get(random.nextInt(moves.size()));
+                makeOnPath(move);
+            }
+
+            // Increase the number of simulations
+            countSimulation();
+
+            // WHITE NODE - WHITE LOSES.
+            // BLACK NODE - BLACK LOSES.
+            if (initialSideToMove == state.getPlayerToMove()) {
+                // Side to move wins.
+                return State.LOSS_VALUE;
+            } else {
+                // Side to move loses.
+                return State.WIN_VALUE;
+            }
+        }
+
+        private void countSimulation() {
+            simulations++;
+            if (m_trees.length == 1) {
+                m_simulations.increment();
+            }
+        }
+
+        private void countNodes(int count) {
+            nodes += count;
+            if (m_trees.length == 1) {
+                m_nodes.add(count);
+            }
+        }
+
+        // A tree of the root-parallel ensemble shares no counters: it stops after its share of
+        // the simulations or of the nodes, or at the time limit.
+        private boolean reachedOwnLimit() {
+            if (m_depthLimit > 0 && simulations * m_workers.length >= m_depthLimit) {
+                return true;
+            }
+            if (m_nodeLimit > 0 && nodes * m_workers.length >= m_nodeLimit) {
+                return true;
+            }
+            return m_timeLimit > 0 && (System.currentTimeMillis() - m_msec) >= m_timeLimit;
+        }
+
+        // Leaf parallelization: plays m_leafBatch games from the leaf, shared out over this and
+        // the other workers (on the pool), and returns the sum of their results.
+        private long leafPlayouts() {
+            int helpers = m_workers.length - 1;
+            int share   = m_leafBatch / m_workers.length;
+            m_leafResults.clear();
+            if (share > 0) {
+                for (int i = 1; i <= helpers; i++) {
+                    Worker helper = m_workers[i];
+                    state.copyInto(helper.state);
+                    m_leafResults.add(m_pool.submit(() -> helper.playouts(share)));
+                }
+            } else {
+                helpers = 0;
+            }
+
+            long value = playouts(m_leafBatch - helpers * share);
+            try {
+                for (Future<Long> result : m_leafResults) {
+                    value += result.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            return value;
+        }
+
+        // Plays 'games' random games from the current position and returns the sum of their
+        // results, for the side that made the last move.
+        private long playouts(int games) {
+            int  length = pathLength;
+            long value  = 0;
+            for (int i = 0; i < games; i++) {
+                value += defaultPolicy();
+                retractPath(length);
+            }
+            return value;
+        }
+
+        // Makes 'move' and records it, to be retracted by retractPath().
+        private void makeOnPath(Move move) {
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, 2 * path.length);
+            }
+            path[pathLength++] = move;
+            state.make(move);
+        }
+
+        // Takes back the moves of the last descent and playout, back to the root position.
+        private void retractPath() {
+            retractPath(0);
+        }
+
+        // Takes back the moves made after the first 'length' ones.
+        private void retractPath(int length) {
+            while (pathLength > length) {
+                state.retract(path[--pathLength]);
+            }
+        }
+    }
+
+    public String getName() {
+        return String.format("MCTS (rms: %s, c: %.0f)",
+                rootMoveSelector.toString(), EXPLORATION_CONSTANT);
+    }
+
+}
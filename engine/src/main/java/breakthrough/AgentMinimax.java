@@ -1,7 +1,11 @@
+package breakthrough;
+
 /**
  *
  * Agent using MiniMax search for thinking ahead.
  *
+ * Optionally with a transposition table (exact values only), as in AgentAlphaBeta.
+ *
  */
 import java.util.ArrayList;
 import java.util.Random;
@@ -19,13 +23,27 @@ public class AgentMinimax implements Agent
     private long    m_msec;
     private boolean m_abort;
     private PV      m_pv;
+    private TranspositionTable m_transTable; // null if disabled.
+    private long    m_transHits;
 
     AgentMinimax( )
+    {
+        this( 0 );
+    }
+
+    AgentMinimax( int hashMegabytes )
     {
         m_silent = true;
         m_rng = new Random();
         m_pv = new PV( MAX_SEARCH_DEPTH + 1 );
         m_depthLimit = m_nodeLimit = m_timeLimit = 0;
+        setHashSize( hashMegabytes );
+    }
+
+    // Sets the size of the transposition table, 0 disables it.
+    public void setHashSize( int megabytes )
+    {
+        m_transTable = ( megabytes > 0 ? new TranspositionTable( megabytes ) : null );
     }
 
     public void setSilence( boolean on )
@@ -50,6 +68,10 @@ public class AgentMinimax implements Agent
         m_msec = System.currentTimeMillis();
         m_nodes = 0;
         m_abort = false;
+        m_transHits = 0;
+        if ( m_transTable != null ) {
+            m_transTable.newSearch( DiscoveryState.PROGRESS_ANY );
+        }
 
         Move bestMove = null;
 
@@ -83,6 +105,10 @@ public class AgentMinimax implements Agent
             }
             if ( !m_silent ) { System.out.println(); }
         }
+        if ( !m_silent && m_transTable != null ) {
+            System.out.println( "trans  : " + m_transHits );
+            System.out.println( "hash   : " + m_transTable.getUsage() / 10.0 + "%" );
+        }
 
         return bestMove;
     }
@@ -110,19 +136,46 @@ public class AgentMinimax implements Agent
             return state.getEvaluation();
         }
 
+        // Transposition table lookup (not at the root, which must leave a PV).
+        long entry = TranspositionTable.NO_ENTRY;
+        if ( m_transTable != null ) {
+            entry = m_transTable.get( state.getHashKey() );
+            if ( entry != TranspositionTable.NO_ENTRY && ply > 0 && TranspositionTable.getDepth( entry ) >= depth ) {
+                m_transHits++;
+                return TranspositionTable.getEval( entry );
+            }
+        }
+
+        // The first move: the given one, else the best move of the transposition table entry.
+        ArrayList<Move> moves = state.getActions( null );
+        int first = ( entry != TranspositionTable.NO_ENTRY ? TranspositionTable.getMove( entry ) : -1 );
+        if ( firstMoveToLookAt != null ) {
+            first = AgentAlphaBeta.indexOf( moves, firstMoveToLookAt );
+        }
+        if ( first < 0 || first >= moves.size() ) {
+            first = 0;
+        }
+
         int bestValue = Integer.MIN_VALUE;
-        ArrayList<Move> moves = state.getActions( firstMoveToLookAt );
-        for ( Move move : moves ) {
+        int bestIndex = -1;
+        for ( int k = 0; k < moves.size(); ++k ) {
+            int i = AgentAlphaBeta.moveOrder( k, first );
+            Move move = moves.get( i );
             state.make( move );
             int value = -minimax( ply+1, depth-1, state, null );
             state.retract( move );
             if ( m_abort ) { break; }
             if ( value > bestValue ) {
                 bestValue = value;
+                bestIndex = i;
                 m_pv.set( ply, move );
             }
 
         }
+        if ( m_transTable != null && !m_abort && bestIndex >= 0 ) {
+            m_transTable.put( state.getHashKey(), DiscoveryState.PROGRESS_ANY, AgentDiscovery.SCORE_EXACT,
+                              depth, bestValue, bestIndex );
+        }
         return bestValue;
     }
 
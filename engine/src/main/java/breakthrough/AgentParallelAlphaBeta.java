@@ -0,0 +1,335 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * Agent using parallel alpha-beta search (Young Brothers Wait) on any State.
+ *
+ * At nodes at least MIN_SPLIT_DEPTH from the horizon the eldest child is searched first; the
+ * younger brothers are then searched in parallel as fork/join tasks, each on its own copy of
+ * the state. A beta cutoff at such a split point stops the tasks still searching below it.
+ * Shallower nodes are searched serially, as in AgentAlphaBeta.
+ *
+ */
+public class AgentParallelAlphaBeta implements Agent
+{
+    private static final int INFINITY_VALUE   = 10001;
+    private static final int MAX_SEARCH_DEPTH = 100;
+    private static final int MIN_SPLIT_DEPTH  = 4;    // Smaller subtrees are not worth a task.
+    private static final int CHECK_INTERVAL   = 1000; // Nodes between limit/cutoff checks.
+
+    private boolean m_silent;
+    private long    m_depthLimit;
+    private long    m_nodeLimit;
+    private long    m_timeLimit;
+
+    private Random           m_rng = new Random();
+    private ForkJoinPool     m_pool;
+    private LongAdder        m_nodes = new LongAdder();
+    private long             m_msec;
+    private volatile boolean m_abort;
+    private int              m_value;  // Of the last depth completed.
+
+    AgentParallelAlphaBeta()
+    {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    AgentParallelAlphaBeta( int threads )
+    {
+        m_silent = true;
+        m_depthLimit = m_nodeLimit = m_timeLimit = 0;
+        setThreads( threads );
+    }
+
+    public void setThreads( int threads )
+    {
+        if ( m_pool != null ) {
+            m_pool.shutdown();
+        }
+        m_pool = new ForkJoinPool( Math.max( 1, threads ) );
+    }
+
+    // Stops the pool's threads; the agent cannot search after this (until setThreads()).
+    public void shutdown()
+    {
+        m_pool.shutdown();
+    }
+
+    public int getThreads()
+    {
+        return m_pool.getParallelism();
+    }
+
+    // Nodes searched during the last search.
+    public long getNodes()
+    {
+        return m_nodes.sum();
+    }
+
+    // Value of the root, for the side to move, at the last depth completed.
+    public int getValue()
+    {
+        return m_value;
+    }
+
+    public void setSilence( boolean on )
+    {
+        m_silent = on;
+    }
+
+    public void setThinklimit( long maxLimit, long maxNodes, long maxTimeMsec )
+    {
+        m_depthLimit = maxLimit;
+        m_nodeLimit = maxNodes;
+        m_timeLimit = maxTimeMsec;
+    }
+
+    public Move playMove( State state, Game gameHistory )
+    {
+        // Initialize stuff
+        m_msec = System.currentTimeMillis();
+        m_nodes.reset();
+        m_abort = false;
+
+        Move bestMove = null;
+
+        // Non-determinism:
+        ArrayList<Move> moves = state.getActions(null);
+        bestMove = moves.get(m_rng.nextInt(moves.size()));
+
+        long maxDepth = m_depthLimit;
+        if (maxDepth == 0 || maxDepth > MAX_SEARCH_DEPTH) {
+            maxDepth = MAX_SEARCH_DEPTH;
+        }
+
+        for (int depth = 1; depth <= maxDepth && !m_abort; depth++) {
+            SearchTask root = new SearchTask(state, bestMove, depth);
+            m_pool.invoke(root);
+
+            long msec = System.currentTimeMillis() - m_msec;
+            if ( !m_silent ) { System.out.printf( "\t%2d %10d %7d", depth, m_nodes.sum(), msec ); }
+            if ( root.bestMove != null ) {
+                if ( !m_silent ) { System.out.printf( " %+6d  %s", root.value, root.bestMove.toStr() ); }
+                bestMove = root.bestMove;
+            }
+            if ( !m_abort ) { m_value = root.value; }
+            if ( !m_silent ) { System.out.println(); }
+        }
+
+        return bestMove;
+    }
+
+    public String getName() {
+        return "ParallelAlphaBeta";
+    }
+
+    private boolean reachedALimit()
+    {
+        if ( (m_nodeLimit > 0) && (m_nodes.sum() >= m_nodeLimit) ) {
+            return true;
+        }
+        if ( (m_timeLimit > 0) && (System.currentTimeMillis() - m_msec) >= m_timeLimit ) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * SplitPoint
+     *
+     * A node whose younger brothers are searched in parallel: the bounds and best move so far,
+     * shared by its tasks, and whether it has been cut off.
+     */
+    private static class SplitPoint
+    {
+        final SplitPoint parent;
+        final int        beta;
+        volatile int     alpha;
+        volatile boolean cutoff;
+        int              bestValue = Integer.MIN_VALUE;
+        Move             bestMove;
+
+        SplitPoint( SplitPoint parent, int alpha, int beta )
+        {
+            this.parent = parent;
+            this.alpha  = alpha;
+            this.beta   = beta;
+        }
+
+        synchronized void update( int value, Move move )
+        {
+            if ( value > bestValue ) {
+                bestValue = value;
+                bestMove  = move;
+            }
+            if ( value > alpha ) {
+                alpha = value;
+                if ( alpha >= beta ) {
+                    cutoff = true;
+                }
+            }
+        }
+
+        // True if this split point, or one it is below, was cut off.
+        boolean isStopped()
+        {
+            for ( SplitPoint sp = this; sp != null; sp = sp.parent ) {
+                if ( sp.cutoff ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized int getValue()
+        {
+            return cutoff ? beta : ( bestMove == null ? alpha : bestValue );
+        }
+    }
+
+    /**
+     * SearchTask
+     *
+     * Searches the root (move == null), or one younger brother of a split point, on a copy of
+     * the parent's state.
+     */
+    private class SearchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final State      parentState;
+        private final Move       move;
+        private final Move       first;
+        private final int        depth;
+        private final int        ply;
+        private final SplitPoint split;
+
+        private State   state;
+        private long    nodes;
+        private boolean stopped;
+
+        // Results (of the root task).
+        int  value;
+        Move bestMove;
+
+        SearchTask( State root, Move first, int depth )
+        {
+            this( root, null, first, 0, depth, null );
+        }
+
+        SearchTask( State parentState, Move move, Move first, int ply, int depth, SplitPoint split )
+        {
+            this.parentState = parentState;
+            this.move        = move;
+            this.first       = first;
+            this.ply         = ply;
+            this.depth       = depth;
+            this.split       = split;
+        }
+
+        protected void compute()
+        {
+            if ( m_abort || ( split != null && split.isStopped() ) ) {
+                return;
+            }
+            state = parentState.copy();
+            if ( move == null ) {
+                value = search( 0, depth, -INFINITY_VALUE, INFINITY_VALUE, first, null );
+            }
+            else {
+                state.make( move );
+                int eval = -search( ply, depth, -split.beta, -split.alpha, null, split );
+                if ( !m_abort && !split.isStopped() ) {
+                    split.update( eval, move );
+                }
+            }
+            m_nodes.add( nodes % CHECK_INTERVAL );
+        }
+
+        private void countNode()
+        {
+            if ( ++nodes % CHECK_INTERVAL == 0 ) {
+                m_nodes.add( CHECK_INTERVAL );
+                if ( reachedALimit() ) {
+                    m_abort = true;
+                }
+                if ( split != null && split.isStopped() ) {
+                    stopped = true;
+                }
+            }
+        }
+
+        // Young Brothers Wait: the eldest child first, then the others in parallel.
+        private int search( int ply, int depth, int alpha, int beta, Move first, SplitPoint parent )
+        {
+            if ( depth < MIN_SPLIT_DEPTH ) {
+                return alphaBeta( ply, depth, alpha, beta, first );
+            }
+            countNode();
+            if ( state.isTerminal() ) {
+                return state.getEvaluation();
+            }
+
+            SplitPoint sp = new SplitPoint( parent, alpha, beta );
+            ArrayList<Move> moves = state.getActions( first );
+            Move eldest = moves.get( 0 );
+            state.make( eldest );
+            int eval = -search( ply + 1, depth - 1, -beta, -alpha, null, sp );
+            state.retract( eldest );
+            if ( m_abort || stopped || sp.isStopped() ) {
+                return alpha;
+            }
+            sp.update( eval, eldest );
+
+            if ( !sp.cutoff && moves.size() > 1 ) {
+                ArrayList<SearchTask> brothers = new ArrayList<SearchTask>( moves.size() - 1 );
+                for ( int i = 1; i < moves.size(); i++ ) {
+                    brothers.add( new SearchTask( state, moves.get( i ), null, ply + 1, depth - 1, sp ) );
+                }
+                invokeAll( brothers );
+            }
+
+            if ( ply == 0 ) {
+                bestMove = sp.bestMove;
+            }
+            return sp.getValue();
+        }
+
+        private int alphaBeta( int ply, int depth, int alpha, int beta, Move first )
+        {
+            countNode();
+            if ( depth <= 0 || state.isTerminal() ) {
+                return state.getEvaluation();
+            }
+
+            int bestValue = Integer.MIN_VALUE;
+            ArrayList<Move> moves = state.getActions( first );
+            for ( Move move : moves ) {
+                state.make( move );
+                int value = -alphaBeta( ply + 1, depth - 1, -beta, -alpha, null );
+                state.retract( move );
+                if ( m_abort || stopped ) { break; }
+
+                if ( value > bestValue ) {
+                    bestValue = value;
+                    if ( ply == 0 ) { bestMove = move; }
+                }
+
+                // Raising alpha?
+                if ( bestValue > alpha ) {
+                    alpha = bestValue;
+                    // Beta cutoff?
+                    if ( alpha >= beta ) return beta;
+                }
+            }
+            return bestValue;
+        }
+    }
+
+}
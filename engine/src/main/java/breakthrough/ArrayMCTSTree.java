@@ -0,0 +1,137 @@
+package breakthrough;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * ArrayMCTSTree
+ *
+ * An MCTSTree stored in one primitive array per field, on the heap. Concurrent searches update
+ * the elements through VarHandles.
+ */
+public class ArrayMCTSTree extends MCTSTree {
+
+    // Constants
+    public static final int NODE_BYTES = 4 + 8 + 4 + 4 + 2 + 2 + 4;
+
+    private static final VarHandle INTS   = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS  = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle SHORTS = MethodHandles.arrayElementVarHandle(short[].class);
+
+    // Node statistics and structure, indexed by node.
+    private int[]   visits     = new int[0];
+    private long[]  value      = new long[0];
+    private int[]   parent     = new int[0];
+    private int[]   firstChild = new int[0];
+    private short[] childCount = new short[0];
+    private short[] explored   = new short[0];
+    private int[]   move       = new int[0];
+
+    public ArrayMCTSTree(long memoryLimit) {
+        setMemoryLimit(memoryLimit);
+    }
+
+    public int getVisits(int node) {
+        return visits[node];
+    }
+
+    public long getValue(int node) {
+        return value[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    protected int getParent(int node) {
+        return parent[node];
+    }
+
+    protected int getExplored(int node) {
+        return explored[node];
+    }
+
+    protected int getEncodedMove(int node) {
+        return move[node];
+    }
+
+    protected void setVisits(int node, int visits) {
+        this.visits[node] = visits;
+    }
+
+    protected void setValue(int node, long value) {
+        this.value[node] = value;
+    }
+
+    protected void setParent(int node, int parent) {
+        this.parent[node] = parent;
+    }
+
+    protected void setFirstChild(int node, int firstChild) {
+        this.firstChild[node] = firstChild;
+    }
+
+    protected void setChildCount(int node, int childCount) {
+        this.childCount[node] = (short) childCount;
+    }
+
+    protected void setExplored(int node, int explored) {
+        this.explored[node] = (short) explored;
+    }
+
+    protected void setEncodedMove(int node, int move) {
+        this.move[node] = move;
+    }
+
+    protected void addVisits(int node, int visits) {
+        INTS.getAndAdd(this.visits, node, visits);
+    }
+
+    protected void addValue(int node, long value) {
+        LONGS.getAndAdd(this.value, node, value);
+    }
+
+    protected int getAndIncrementExplored(int node) {
+        return (short) SHORTS.getAndAdd(explored, node, (short) 1);
+    }
+
+    protected int getFirstChildAcquire(int node) {
+        return (int) INTS.getAcquire(firstChild, node);
+    }
+
+    protected void setFirstChildRelease(int node, int firstChild) {
+        INTS.setRelease(this.firstChild, node, firstChild);
+    }
+
+    protected boolean casFirstChild(int node, int expected, int firstChild) {
+        return INTS.compareAndSet(this.firstChild, node, expected, firstChild);
+    }
+
+    public int getNodeBytes() {
+        return NODE_BYTES;
+    }
+
+    public int getCapacity() {
+        return visits.length;
+    }
+
+    protected int getMaxCapacity() {
+        return Integer.MAX_VALUE - 8;
+    }
+
+    protected void resize(int capacity) {
+        visits     = Arrays.copyOf(visits, capacity);
+        value      = Arrays.copyOf(value, capacity);
+        parent     = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        explored   = Arrays.copyOf(explored, capacity);
+        move       = Arrays.copyOf(move, capacity);
+    }
+
+}
@@ -0,0 +1,123 @@
+package breakthrough;
+
+import java.util.HashMap;
+
+/**
+ * BoardGeometry
+ *
+ * Masks, shift deltas and lookup tables of a single-long bitboard for a board of rows x cols
+ * <= 64 squares, generated once per board size. Squares are laid out as in DiscoveryState:
+ * square = rank * cols + (cols - 1 - file), i.e. file a is the highest bit of every rank, so
+ * BoardGeometry.of(8, 8) reproduces DiscoveryState's hand-written RANK_x/FILE_x masks.
+ */
+public final class BoardGeometry {
+
+    // Constants
+    public static final int MIN_ROWS = 4;
+    public static final int MIN_COLS = 2;
+    public static final int MAX_SQUARES = 64;
+
+    private static final String FILE_NAMES = "abcdefghijklmnopqrstuvwxyz";
+    private static final String RANK_NAMES = "1234567890ABCDEFGHIJKLMNOP";
+
+    private static final HashMap<Integer, BoardGeometry> cache = new HashMap<Integer, BoardGeometry>();
+
+    // Size
+    public final int rows;
+    public final int cols;
+    public final int squares;
+
+    // Masks
+    public final long   board;       // Every square of the board.
+    public final long   notFileA;    // Pieces that can move diagonally towards file a.
+    public final long   notLastFile; // Pieces that can move diagonally towards the last file.
+    public final long[] ranks;       // Indexed by rank, 0 = rank 1.
+    public final long[] files;       // Indexed by file, 0 = file a.
+    public final long[] goal;        // Indexed by color, the rank that color wins on.
+
+    // Shifts of a forward, a diagonal (towards file a) and a diagonal (towards the last file) move.
+    public final int shiftForward;
+    public final int shiftFileA;
+    public final int shiftLastFile;
+
+    // Lookup tables, indexed by square.
+    public final int[]    rankOf;
+    public final int[]    fileOf;
+    public final String[] names;
+
+    // One shared Move per move in the DiscoveryMove encoding.
+    private final Move[] moves;
+
+    public static synchronized BoardGeometry of(int rows, int cols) {
+        if (rows < MIN_ROWS || cols < MIN_COLS || rows * cols > MAX_SQUARES) {
+            throw new IllegalArgumentException("Unsupported board size: " + rows + "x" + cols);
+        }
+        BoardGeometry geometry = cache.get(rows * 100 + cols);
+        if (geometry == null) {
+            geometry = new BoardGeometry(rows, cols);
+            cache.put(rows * 100 + cols, geometry);
+        }
+        return geometry;
+    }
+
+    private BoardGeometry(int rows, int cols) {
+        this.rows    = rows;
+        this.cols    = cols;
+        this.squares = rows * cols;
+
+        ranks  = new long[rows];
+        files  = new long[cols];
+        rankOf = new int[squares];
+        fileOf = new int[squares];
+        names  = new String[squares];
+        for (int rank = 0; rank < rows; rank++) {
+            for (int file = 0; file < cols; file++) {
+                int square = square(rank, file);
+                ranks[rank] |= 1L << square;
+                files[file] |= 1L << square;
+                rankOf[square] = rank;
+                fileOf[square] = file;
+                names[square]  = "" + FILE_NAMES.charAt(file) + RANK_NAMES.charAt(rank);
+            }
+        }
+
+        board       = (squares == 64 ? -1L : (1L << squares) - 1);
+        notFileA    = board & ~files[0];
+        notLastFile = board & ~files[cols - 1];
+        goal        = new long[]{ ranks[rows - 1], ranks[0] };
+
+        shiftForward  = cols;
+        shiftFileA    = cols + 1;
+        shiftLastFile = cols - 1;
+
+        moves = new Move[1 << 13];
+        for (int from = 0; from < squares; from++) {
+            for (int to = 0; to < squares; to++) {
+                for (int capture = 0; capture < 2; capture++) {
+                    moves[DiscoveryMove.createMove(from, to, capture == 1)] =
+                            new Move(fileOf[from], rankOf[from], fileOf[to], rankOf[to], capture == 1);
+                }
+            }
+        }
+    }
+
+    public int square(int rank, int file) {
+        return rank * cols + (cols - 1 - file);
+    }
+
+    // Returns the shared Move instance for 'move' (DiscoveryMove encoding); it must not be modified.
+    public Move toMove(int move) {
+        return moves[move];
+    }
+
+    public int toInt(Move move) {
+        return DiscoveryMove.createMove(square(move.from_row, move.from_col),
+                                        square(move.to_row, move.to_col), move.capture);
+    }
+
+    public String toString(int move) {
+        return names[DiscoveryMove.getFrom(move)] + (DiscoveryMove.isCapture(move) ? "x" : "-")
+             + names[DiscoveryMove.getTo(move)];
+    }
+
+}
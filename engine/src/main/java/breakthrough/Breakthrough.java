@@ -1,3 +1,5 @@
+package breakthrough;
+
 /**
  *
  * Breakthrough Game
@@ -21,9 +23,9 @@ public class Breakthrough {
 
         System.out.println( "Welcome to Breakthrough! ('h' for help)" );
 
-        State            state             = new BreakthroughState( MAX_ROWS, MAX_COLS );
+        State            state             = new DiscoveryState();  // Bitboards, MAX_ROWS x MAX_COLS = 8x8.
         Agent            agents[]          = { new AgentAlphaBeta(), new AgentDiscovery() };
-        Game             game              = new Game( new BreakthroughState( (BreakthroughState) state ) );
+        Game             game              = new Game( new DiscoveryState( (DiscoveryState) state ) );
         long             maxSearchLimit    = 0;     // 0 = limit disabled.
         long             maxSearchTimeMsec = 1000;  // 0 = limit disabled.
         long             maxSearchNodes    = 0;
@@ -59,9 +61,14 @@ public class Breakthrough {
                         System.out.println("  l <n>     : Set maximum search limit (depth/simulation count).");
                         System.out.println("  t <n>     : Set maximum search time (msec.).");
                         System.out.println("  n <n>     : Set maximum search nodes.");
+                        System.out.println("  e <s> <a> : Set the agent of side <s> (0 = white, 1 = black): alphabeta,");
+                        System.out.println("              parallel (parallel alpha-beta), discovery or mcts.");
+                        System.out.println("  j <n>     : Set number of search threads (Discovery/Parallel/MCTS).");
+                        System.out.println("  x <n>     : Set transposition table MB (AlphaBeta/Minimax, 0 = off).");
                         System.out.println("  v         : Toogle verbose mode on/off.");
                         System.out.println("  g         : Go, thinking! Find and play (the best) move.");
                         System.out.println("  a <n>     : Autoplay a <n> game match pairs (alternating colors).");
+                        System.out.println("  p <n>     : Perft, count leaf nodes to depth <n> (per move).");
                         System.out.println("  q         : Quit the program.");
                     }
                     else if ( command.equals("i") ) {
@@ -162,6 +169,87 @@ public class Breakthrough {
                             System.out.println( " => Input error, nodes missing.");
                         }
                     }
+                    else if ( command.equals("e") ) {
+                        // Set the agent of a side.
+                        if ( st.countTokens() >= 2 ) {
+                            try {
+                                int side = Integer.valueOf(st.nextToken());
+                                String name = st.nextToken();
+                                Agent agent = newAgent( name );
+                                if ( side < 0 || side > 1 ) {
+                                    System.out.println( " => Input error, side not 0 or 1.");
+                                }
+                                else if ( agent == null ) {
+                                    System.out.println( " => Input error, unknown agent: '" + name + "'");
+                                }
+                                else {
+                                    agent.setSilence( silenceAgent );
+                                    agent.setThinklimit( maxSearchLimit, maxSearchNodes, maxSearchTimeMsec );
+                                    if ( agents[side] instanceof AgentParallelAlphaBeta ) {
+                                        ((AgentParallelAlphaBeta) agents[side]).shutdown();
+                                    }
+                                    agents[side] = agent;
+                                    System.out.println( "e:" + side + " " + agent.getName() );
+                                }
+                            } catch (NumberFormatException e ) {
+                                System.out.println( " => Input error, side not an integer.");
+                            }
+                        }
+                        else {
+                            System.out.println( " => Input error, side or agent missing.");
+                        }
+                    }
+                    else if ( command.equals("j") ) {
+                        // Set the number of search threads (of the agents that search in parallel).
+                        if ( st.hasMoreTokens() ) {
+                            try {
+                                int threads = Integer.valueOf(st.nextToken());
+                                for ( Agent agent : agents ) {
+                                    if ( agent instanceof AgentDiscovery ) {
+                                        ((AgentDiscovery) agent).setThreads( threads );
+                                    }
+                                    else if ( agent instanceof AgentParallelAlphaBeta ) {
+                                        ((AgentParallelAlphaBeta) agent).setThreads( threads );
+                                    }
+                                    else if ( agent instanceof AgentMCTS ) {
+                                        ((AgentMCTS) agent).setThreads( threads );
+                                    }
+                                }
+                                System.out.println( "j:" + threads );
+                            } catch (NumberFormatException e ) {
+                                System.out.println( " => Input error, threads not an integer.");
+                            }
+                        }
+                        else {
+                            System.out.println( " => Input error, threads missing.");
+                        }
+                    }
+                    else if ( command.equals("x") ) {
+                        // Set the transposition table size (of the agents with an optional one), or the
+                        // size of the MCTS tree.
+                        if ( st.hasMoreTokens() ) {
+                            try {
+                                int megabytes = Integer.valueOf(st.nextToken());
+                                for ( Agent agent : agents ) {
+                                    if ( agent instanceof AgentAlphaBeta ) {
+                                        ((AgentAlphaBeta) agent).setHashSize( megabytes );
+                                    }
+                                    else if ( agent instanceof AgentMinimax ) {
+                                        ((AgentMinimax) agent).setHashSize( megabytes );
+                                    }
+                                    else if ( agent instanceof AgentMCTS ) {
+                                        ((AgentMCTS) agent).setTreeSize( megabytes );
+                                    }
+                                }
+                                System.out.println( "x:" + megabytes );
+                            } catch (NumberFormatException e ) {
+                                System.out.println( " => Input error, megabytes not an integer.");
+                            }
+                        }
+                        else {
+                            System.out.println( " => Input error, megabytes missing.");
+                        }
+                    }
                     else if ( command.equals("d") ) {
                         if ( st.hasMoreTokens() ) {
                             String str = st.nextToken();
@@ -241,7 +329,19 @@ public class Breakthrough {
                             System.out.println( " => Input error, number of games missing.");
                         }
                     }
-
+                    else if ( command.equals("p") ) {
+                        // Count leaf nodes below each move of the current position.
+                        if ( st.hasMoreTokens() ) {
+                            try {
+                                Perft.divide( state, Integer.valueOf(st.nextToken()) );
+                            } catch (NumberFormatException e ) {
+                                System.out.println( " => Input error, depth not an integer.");
+                            }
+                        }
+                        else {
+                            System.out.println( " => Input error, depth missing.");
+                        }
+                    }
                     else if ( command.equals("q") ) {
                         // Break out of loop and quit program.
                         break;
@@ -262,6 +362,24 @@ public class Breakthrough {
     }
 
 
+    // The agent called 'name' in the 'e' command, or null if there is none.
+    private static Agent newAgent( String name )
+    {
+        if ( name.equals( "alphabeta" ) ) {
+            return new AgentAlphaBeta();
+        }
+        else if ( name.equals( "parallel" ) ) {
+            return new AgentParallelAlphaBeta();
+        }
+        else if ( name.equals( "discovery" ) ) {
+            return new AgentDiscovery();
+        }
+        else if ( name.equals( "mcts" ) ) {
+            return new AgentMCTS();
+        }
+        return null;
+    }
+
     private static void playAMatch( Agent agents[], int goesFirst, State state, Game game, int [] outcome )
     {
         int toMove = goesFirst;
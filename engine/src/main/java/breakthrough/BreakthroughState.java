@@ -0,0 +1,617 @@
+package breakthrough;
+
+/**
+ *
+ * BreakthroughState
+ *
+ */
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class BreakthroughState implements State
+{
+    enum Square { Empty, White, Black }
+
+    private static String s_columns = "abcdefghijklmnopqrstuvxyz";
+    private static String s_rows    = "123456789ABCDEFGHIJKLMNOP";
+
+    // Move tables, one per board size (see getMoveTable).
+    private static HashMap<Integer, Move []> s_moveTables = new HashMap<Integer, Move []>();
+
+    private int         m_col;
+    private int         m_row;
+    private Square [][] m_board;
+    private int         m_turn;
+    private int []      m_countPces;
+    private Result      m_result;
+    private long        m_key;       // Zobrist key (see Zobrist), updated incrementally.
+    private Move []     m_moves;
+
+    public BreakthroughState( int row, int col )
+    {
+        m_row = Math.max( 4, Math.min( row, s_rows.length() ) );
+        m_col = Math.max( 2, Math.min( col, s_columns.length() ) );
+        m_board = new Square[m_row][m_col];
+        m_countPces = new int[2];
+        m_moves = getMoveTable( m_row, m_col );
+        reset();
+    }
+
+    public BreakthroughState( BreakthroughState other )
+    {
+        m_row = other.m_row;
+        m_col = other.m_col;
+        m_board = new Square[m_row][m_col];
+        m_countPces = new int[2];
+        m_moves = other.m_moves;
+        other.copyInto( this );
+    }
+
+    // Returns the table of every (from, to, capture) move on a row x col board. It is created once
+    // per board size and shared by all states of that size, so moves are compared by identity.
+    private static synchronized Move [] getMoveTable( int row, int col )
+    {
+        Move [] moves = s_moveTables.get( row * 100 + col );
+        if ( moves == null ) {
+            moves = new Move[row * col * 2 * 3 * 2];
+            for ( int r=0; r<row; ++r ) {
+                for ( int c=0; c<col; ++c ) {
+                    for ( int turn=0; turn<2; ++turn ) {
+                        int toRow = ( turn == 0 ? r + 1 : r - 1 );
+                        for ( int dir=0; dir<3; ++dir ) {
+                            int toCol = c + dir - 1;
+                            if ( toRow < 0 || toRow >= row || toCol < 0 || toCol >= col ) {
+                                continue;
+                            }
+                            int index = moveIndex( col, r, c, turn, dir );
+                            moves[index]     = new Move( c, r, toCol, toRow, false );
+                            moves[index + 1] = new Move( c, r, toCol, toRow, true );
+                        }
+                    }
+                }
+            }
+            s_moveTables.put( row * 100 + col, moves );
+        }
+        return moves;
+    }
+
+    // Index of the non-capture in the move table, the capture follows it. Direction 0 is towards
+    // file a, 1 is straight ahead and 2 is towards the last file.
+    private static int moveIndex( int cols, int row, int col, int turn, int dir )
+    {
+        return ( ( ( row * cols + col ) * 2 + turn ) * 3 + dir ) * 2;
+    }
+
+    private void empty()
+    {
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                m_board[row][col] = Square.Empty;
+            }
+        }
+        m_turn  = 0;
+        m_countPces[0] = m_countPces[1] = 0;
+        m_result = Result.Unknown;
+    }
+
+    public void reset()
+    {
+        empty();
+
+        for ( int row=0; row<2; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                //if ((col+row)%2 == 0) continue;
+                m_board[row][col] = Square.White;
+                m_countPces[0]++;
+            }
+        }
+        for ( int row=m_row-2; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                //if ((col+row)%2 == 0) continue;
+                m_board[row][col] = Square.Black;
+                m_countPces[1]++;
+            }
+        }
+        m_key = computeHashKey();
+    }
+
+    public long getHashKey()
+    {
+        return m_key;
+    }
+
+    public int getRows()
+    {
+        return m_row;
+    }
+
+    public int getCols()
+    {
+        return m_col;
+    }
+
+    // Computes the Zobrist key from scratch (the key is otherwise kept up to date incrementally).
+    public long computeHashKey()
+    {
+        long key = 0L;
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                if ( m_board[row][col] == Square.White ) {
+                    key ^= Zobrist.PIECES[0][square( row, col )];
+                }
+                else if ( m_board[row][col] == Square.Black ) {
+                    key ^= Zobrist.PIECES[1][square( row, col )];
+                }
+            }
+        }
+        if ( m_turn == 1 ) {
+            key ^= Zobrist.SIDE_TO_MOVE;
+        }
+        return key;
+    }
+
+    // Number of a square in the Zobrist keys and the binary encoding, see PositionCodec.
+    private int square( int row, int col )
+    {
+        return row * m_col + m_col - 1 - col;
+    }
+
+    public boolean setup( String strFEN )
+    {
+        boolean error = false;
+        boolean exit = false;
+        int i  = 0;
+        int n = strFEN.length();
+        empty();
+        for ( int row=m_row-1; row>=0 && !exit; --row ) {
+            for ( int col=0; col<m_col && !exit; ++col ) {
+                if ( i >= n ) {
+                    exit = true;
+                }
+                else {
+                    switch ( strFEN.charAt(i) ) {
+                        case 'w':
+                            m_board[row][col] = Square.White;
+                            m_countPces[0]++;
+                            break;
+                        case 'b':
+                            m_board[row][col] = Square.Black;
+                            m_countPces[1]++;
+                            break;
+                        case '.':
+                            break;
+                        case ' ':
+                            exit = true;
+                            break;
+                        default:
+                            error = true;
+                            exit = true;
+                            break;
+                    }
+                    ++i;
+                }
+            }
+        }
+
+        if ( !error && (i < n) ) {
+            if ( strFEN.charAt(i) == ' ' ) {
+                ++i;
+            }
+            error = !setTurn( ( i < n && strFEN.charAt(i) == '1' ) ? 1 : 0 );
+        }
+
+        if ( error ) {
+            reset();
+        }
+        else {
+            m_key = computeHashKey();
+        }
+        return !error;
+    }
+
+    // Sets the side to move (and the result) of a position whose pieces are placed. Returns false
+    // if the position is illegal.
+    private boolean setTurn( int turn )
+    {
+        m_turn = turn;
+        int not_turn = ( turn == 0 ? 1 : 0 );
+
+        // Check if a legal position:
+        //  - side not-to-move must have at least one piece.
+        //  - maximum one piece on backrank, and not for side-to-move.
+        m_result =  Result.Unknown;
+        int cntOnBackrankWhite = 0;
+        int cntOnBackrankBlack = 0;
+        for ( int col=0; col<m_col; ++col ) {
+            if ( m_board[0][col] == Square.Black ) {
+                cntOnBackrankBlack++;
+            }
+            if ( m_board[m_row-1][col] == Square.White ) {
+                cntOnBackrankWhite++;
+            }
+        }
+        int usOnBackrank   = ( m_turn == 0 ? cntOnBackrankWhite : cntOnBackrankBlack );
+        int themOnBackrank = ( m_turn == 0 ? cntOnBackrankBlack : cntOnBackrankWhite );
+        if ( m_countPces[not_turn] == 0 || usOnBackrank != 0 || themOnBackrank > 1 ) {
+            return false;
+        }
+        if ( themOnBackrank == 1 || m_countPces[m_turn] == 0 ) {
+            m_result = Result.Loss;
+        }
+        return true;
+    }
+
+    public int getEncodedSize()
+    {
+        return PositionCodec.getEncodedSize( m_row, m_col );
+    }
+
+    // The encoding numbers the squares of a rank from the last file, see PositionCodec.
+    public void encode( byte [] buffer, int offset )
+    {
+        int bytes = PositionCodec.bitsetBytes( m_row * m_col );
+        for ( int i=offset; i<offset+2*bytes; ++i ) {
+            buffer[i] = 0;
+        }
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                int square = square( row, col );
+                if ( m_board[row][col] == Square.White ) {
+                    PositionCodec.setBit( buffer, offset, square );
+                }
+                else if ( m_board[row][col] == Square.Black ) {
+                    PositionCodec.setBit( buffer, offset + bytes, square );
+                }
+            }
+        }
+        buffer[offset + 2 * bytes] = (byte) m_turn;
+    }
+
+    public boolean decode( byte [] buffer, int offset )
+    {
+        int bytes = PositionCodec.bitsetBytes( m_row * m_col );
+        empty();
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                int square = square( row, col );
+                boolean white = PositionCodec.testBit( buffer, offset, square );
+                boolean black = PositionCodec.testBit( buffer, offset + bytes, square );
+                if ( white && black ) {
+                    reset();
+                    return false;
+                }
+                if ( white ) {
+                    m_board[row][col] = Square.White;
+                    m_countPces[0]++;
+                }
+                else if ( black ) {
+                    m_board[row][col] = Square.Black;
+                    m_countPces[1]++;
+                }
+            }
+        }
+        if ( !setTurn( buffer[offset + 2 * bytes] == 0 ? 0 : 1 ) ) {
+            reset();
+            return false;
+        }
+        m_key = computeHashKey();
+        return true;
+    }
+
+    public State copy()
+    {
+        return new BreakthroughState( this );
+    }
+
+    public void copyInto( State target )
+    {
+        BreakthroughState other = (BreakthroughState) target;
+        assert other.m_row == m_row && other.m_col == m_col;
+        for ( int row=0; row<m_row; ++row ) {
+            System.arraycopy( m_board[row], 0, other.m_board[row], 0, m_col );
+        }
+        other.m_turn = m_turn;
+        other.m_countPces[0] = m_countPces[0];
+        other.m_countPces[1] = m_countPces[1];
+        other.m_result = m_result;
+        other.m_key = m_key;
+    }
+
+    // Snapshot: a bitset of the white pieces, one of the black pieces (bit row * cols + col,
+    // 64 squares per long), the hash key and the side to move and result.
+    public int getSnapshotSize()
+    {
+        return 2 * snapshotWords() + 2;
+    }
+
+    private int snapshotWords()
+    {
+        return ( m_row * m_col + 63 ) / 64;
+    }
+
+    public void snapshot( long [] buffer, int offset )
+    {
+        int words = snapshotWords();
+        for ( int i=offset; i<offset+2*words; ++i ) {
+            buffer[i] = 0;
+        }
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                int bit = row * m_col + col;
+                if ( m_board[row][col] == Square.White ) {
+                    buffer[offset + bit / 64] |= 1L << bit;
+                }
+                else if ( m_board[row][col] == Square.Black ) {
+                    buffer[offset + words + bit / 64] |= 1L << bit;
+                }
+            }
+        }
+        buffer[offset + 2 * words] = m_key;
+        buffer[offset + 2 * words + 1] = m_turn | ( m_result.ordinal() << 1 );
+    }
+
+    public void restore( long [] buffer, int offset )
+    {
+        int words = snapshotWords();
+        m_countPces[0] = m_countPces[1] = 0;
+        for ( int row=0; row<m_row; ++row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                int bit = row * m_col + col;
+                if ( ( buffer[offset + bit / 64] & ( 1L << bit ) ) != 0 ) {
+                    m_board[row][col] = Square.White;
+                    m_countPces[0]++;
+                }
+                else if ( ( buffer[offset + words + bit / 64] & ( 1L << bit ) ) != 0 ) {
+                    m_board[row][col] = Square.Black;
+                    m_countPces[1]++;
+                }
+                else {
+                    m_board[row][col] = Square.Empty;
+                }
+            }
+        }
+        m_key = buffer[offset + 2 * words];
+        m_turn = (int) buffer[offset + 2 * words + 1] & 1;
+        m_result = Result.of( (int) ( buffer[offset + 2 * words + 1] >>> 1 ) );
+    }
+
+    public String toString()
+    {
+        StringBuffer buffer = new StringBuffer();
+        for ( int row=m_row-1; row>=0; --row ) {
+            for ( int col=0; col<m_col; ++col ) {
+                char c = ' ';
+                switch ( m_board[row][col] ) {
+                    case Empty: c='.'; break;
+                    case White: c='w'; break;
+                    case Black: c='b'; break;
+                }
+                buffer.append(c);
+            }
+        }
+        buffer.append(' ');
+        buffer.append( m_turn == 0 ? '0' : '1' );
+        return buffer.toString();
+    }
+
+    public void display( )
+    {
+        ArrayList<Move> moves = new ArrayList<Move>();
+
+        for ( int row=m_row-1; row>=0; --row ) {
+            System.out.print( ' ' );
+            System.out.print( row+1 );
+            System.out.print( ' ' );
+            for ( int col=0; col<m_col; ++col ) {
+                char c = ' ';
+                switch ( m_board[row][col] ) {
+                    case Empty: c='.'; break;
+                    case White: c='w'; break;
+                    case Black: c='b'; break;
+                }
+                System.out.print(c);
+            }
+            System.out.println();
+        }
+        System.out.print( "   " );
+        for ( int col=0; col<m_col; ++col ) {
+             System.out.print( s_columns.charAt(col) );
+        }
+        System.out.println();
+        System.out.println( m_turn == 0 ? " White" : " Black" );
+        System.out.print( " Pieces: ");
+        System.out.print( m_countPces[0] );
+        System.out.print( " " );
+        System.out.println( m_countPces[1] );
+        System.out.print( " Terminal: ");
+        System.out.println( isTerminal() );
+        System.out.print( " Result: ");
+        System.out.println( getResult() );
+        System.out.print( " Evaluation: ");
+        System.out.println( getEvaluation() );
+        System.out.print( " FEN-str: ");
+        System.out.println( toString() );
+        System.out.print( " Moves: ");
+        moves = getActions( null );
+        for ( Move move : moves ) {
+            System.out.print( ' ' );
+            System.out.print( move.toStr() );
+        }
+        System.out.println();
+    }
+
+
+    public int getPlayerToMove( )
+    {
+        return m_turn;
+    }
+
+    private boolean sqrOK( int row, int col ) {
+        return row >= 0 && row < m_row && col >= 0 && col < m_col;
+    }
+
+    private void addMove( ArrayList<Move> moves, Move move, Move placeFirst )
+    {
+        if ( placeFirst == move ) {
+            moves.add( 0, move );
+        }
+        else {
+            moves.add( move );
+        }
+    }
+
+    public ArrayList<Move> getActions( Move first )
+    {
+        ArrayList<Move> moves = new ArrayList<Move>( 3 * m_countPces[m_turn] );
+
+        if ( !isTerminal() ) {
+            if ( m_turn == 0 ) { // White
+                for ( int col=0; col<m_col; ++col ) {
+                    for ( int row=0; row<m_row; ++row ) {
+                        if ( m_board[row][col] == Square.White ) {
+                            int index = moveIndex( m_col, row, col, 0, 0 );
+                            int c = col; int r=row + 1;
+                            if ( sqrOK(r,c) && m_board[r][c] == Square.Empty ) {
+                                addMove(moves, m_moves[index + 2], first);
+                            }
+                            c = col - 1;
+                            if ( sqrOK(r,c) && m_board[r][c] != Square.White )  {
+                                addMove(moves, m_moves[index + (m_board[r][c] != Square.Empty ? 1 : 0)], first);
+                            }
+                            c = col + 1;
+                            if ( sqrOK(r,c) && m_board[r][c] != Square.White )  {
+                                addMove(moves, m_moves[index + (m_board[r][c] != Square.Empty ? 5 : 4)], first);
+                            }
+                        }
+                    }
+
+                }
+            }
+            else {  // Black
+                for ( int col=0; col<m_col; ++col ) {
+                    for ( int row=0; row<m_row; ++row ) {
+                        if ( m_board[row][col] == Square.Black ) {
+                            int index = moveIndex( m_col, row, col, 1, 0 );
+                            int c = col; int r=row - 1;
+                            if ( sqrOK(r,c) && m_board[r][c]== Square.Empty )  {
+                                addMove(moves, m_moves[index + 2], first);
+                            }
+                            c = col - 1;
+                            if ( sqrOK(r,c) && m_board[r][c] != Square.Black )  {
+                                addMove(moves, m_moves[index + (m_board[r][c] != Square.Empty ? 1 : 0)], first);
+                            }
+                            c = col + 1;
+                            if ( sqrOK(r,c) && m_board[r][c] != Square.Black )  {
+                                addMove(moves, m_moves[index + (m_board[r][c] != Square.Empty ? 5 : 4)], first);
+                            }
+                        }
+                    }
+
+                }
+            }
+        }
+        return moves;
+    }
+
+
+    public void make( Move move )
+    {
+        assert ( !isTerminal() );
+
+        m_board[move.to_row][move.to_col] = m_board[move.from_row][move.from_col];
+        m_board[move.from_row][move.from_col] = Square.Empty;
+        m_key ^= Zobrist.PIECES[m_turn][square( move.from_row, move.from_col )]
+               ^ Zobrist.PIECES[m_turn][square( move.to_row, move.to_col )]
+               ^ Zobrist.SIDE_TO_MOVE;
+        if ( move.capture ) {
+            m_key ^= Zobrist.PIECES[1 - m_turn][square( move.to_row, move.to_col )];
+        }
+
+        if ( (move.to_row == m_row - 1 &&  m_turn == 0) || (move.to_row == 0 &&  m_turn == 1) ) {
+            // Side that moved wins, the other side (to move now) loses.
+            m_result = Result.Loss;
+        }
+        else {
+            m_result = Result.Unknown;
+        }
+        m_turn = ( ( m_turn == 0 ) ? 1 : 0 );
+        if ( move.capture ) {
+            m_countPces[m_turn]--;
+            if ( m_countPces[m_turn] == 0 ) {
+                m_result = Result.Loss;
+            }
+        }
+
+    }
+
+
+    public void retract( Move move )
+    {
+        final Square[] captured = { Square.White, Square.Black };
+        Square sqr = Square.Empty;
+
+        if ( move.capture ) {
+            m_countPces[m_turn]++;
+            sqr = captured[m_turn];
+        }
+        m_turn = ( ( m_turn == 0 ) ? 1 : 0 );
+        m_board[move.from_row][move.from_col] = m_board[move.to_row][move.to_col];
+        m_board[move.to_row][move.to_col] = sqr;
+        m_key ^= Zobrist.PIECES[m_turn][square( move.from_row, move.from_col )]
+               ^ Zobrist.PIECES[m_turn][square( move.to_row, move.to_col )]
+               ^ Zobrist.SIDE_TO_MOVE;
+        if ( move.capture ) {
+            m_key ^= Zobrist.PIECES[1 - m_turn][square( move.to_row, move.to_col )];
+        }
+        m_result = Result.Unknown;
+    }
+
+
+    public boolean isTerminal()
+    {
+        return m_result != Result.Unknown;
+    }
+
+    public Result getResult()
+    {
+       return m_result;
+    }
+
+    public Move isLegalMove( String strMove )
+    {
+        ArrayList<Move> moves = getActions( null );
+        for( Move move : moves ) {
+            if ( move.toStr().equals( strMove ) ) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    public int getEvaluation()
+    {
+        int value = 0;
+
+        if ( isTerminal() ) {
+            Result result = getResult();
+            if ( result == Result.Win ) {
+               value = State.WIN_VALUE;
+            }
+            else if ( result == Result.Loss ) {
+               value = State.LOSS_VALUE;
+            }
+            else {
+                System.out.println("Error: should not happen.");
+                value = 0;
+            }
+        }
+        else {
+            // Evaluate a non-terminal position (from the perspective of the side to move).
+            value = m_countPces[0] - m_countPces[1];
+            value = ( ( m_turn == 0 ) ? value : -value );
+        }
+
+        return value;
+    }
+
+}
@@ -1,3 +1,5 @@
+package breakthrough;
+
 public class DiscoveryMove {
 
     public static void main(String[] args) {
@@ -13,6 +15,15 @@ public class DiscoveryMove {
     private static final int FROM_SHIFT = 1;
     private static final int TO_SHIFT   = 7; // 1 + 6
 
+    // Flyweights: one shared Move instance per encoded move.
+    private static final Move[] MOVES = new Move[1 << 13];
+
+    static {
+        for (int move = 0; move < MOVES.length; move++) {
+            MOVES[move] = createSerialized(move);
+        }
+    }
+
     // Static helper functions
     public static int createMove(int from, int to, boolean capture) {
         return (capture ? 1 : 0) | (from << FROM_SHIFT) | (to << TO_SHIFT);
@@ -36,7 +47,12 @@ public class DiscoveryMove {
         return createMove(from, to, m.capture);
     }
 
+    // Returns the shared Move instance for 'move'; it must not be modified.
     public static Move serialize(int move) {
+        return MOVES[move];
+    }
+
+    private static Move createSerialized(int move) {
         int from        = getFrom(move);
         int to          = getTo(move);
         boolean capture = isCapture(move);
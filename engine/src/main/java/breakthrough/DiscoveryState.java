@@ -1,25 +1,13 @@
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-public class DiscoveryState {
+package breakthrough;
 
-    ///////////////////////////////////////////////////////////////////////////
-    // Types
-    ///////////////////////////////////////////////////////////////////////////
+import java.util.ArrayList;
 
-    enum Result { Unknown, Loss, Win }
+public class DiscoveryState implements State {
 
     ///////////////////////////////////////////////////////////////////////////
     // Constants
     ///////////////////////////////////////////////////////////////////////////
 
-    // FEN
-    private static final String INITIAL_FEN =
-            "bbbbbbbbbbbbbbbb................................wwwwwwwwwwwwwwww 0";
-
-    private static final Pattern FEN_PATTERN = Pattern.compile("([wb\\.]{64}) ?([01]?)");
-
     // Bitmaps
     private static final long EMPTY = 0x0000000000000000L;
 
@@ -57,6 +45,8 @@ public class DiscoveryState {
     // Board
     public static final int NO_OF_SQUARES = 64;
     public static final int NO_OF_COLORS = 2;
+    public static final int MAX_MOVES = 3 * NO_OF_SQUARES; // Upper bound on the moves in a position.
+    public static final int PROGRESS_ANY = 0x3FF;           // A progress key every position can follow.
 
     public static final String[] SQUARES = new String[]{
         "H1", "G1", "F1", "E1", "D1", "C1", "B1", "A1", // 0  - 7
@@ -109,19 +99,28 @@ public class DiscoveryState {
     private int sideToMove;  // Who's move is it?
     public long key;         // Continuously updated hash key.
     private Result result;
+    private int[] actions = new int[MAX_MOVES]; // Scratch move list for the State interface.
 
     ///////////////////////////////////////////////////////////////////////////
     // Functions
     ///////////////////////////////////////////////////////////////////////////
 
     public DiscoveryState() {
-        setup(INITIAL_FEN);
+        reset();
     }
 
     public DiscoveryState(String fen) {
         setup(fen);
     }
 
+    public DiscoveryState(DiscoveryState other) {
+        WP         = other.WP;
+        BP         = other.BP;
+        sideToMove = other.sideToMove;
+        key        = other.key;
+        result     = other.result;
+    }
+
     // Probably the worst code ever.
     public ArrayList<Integer> getCaptureMoves(int first) {
         ArrayList<Integer> moves = new ArrayList<Integer>();
@@ -180,6 +179,97 @@ public class DiscoveryState {
         return moves;
     }
 
+    // Allocation-free variant of getCaptureMoves: writes the moves to moves[offset...] and returns
+    // how many there are. The move 'first', if generated, is swapped to moves[offset].
+    public int getCaptureMoves(int[] moves, int offset, int first) {
+        int end = offset;
+        if (sideToMove == WHITE) {
+            long WP_NW             = (WP & ~FILE_H) << 9;
+            long WP_NE             = (WP & ~FILE_A) << 7;
+            end = addMoves(moves, end, WP_NW & BP, DELTA_NW, true);
+            end = addMoves(moves, end, WP_NE & BP, DELTA_NE, true);
+        } else {
+            long BP_SW             = (BP & ~FILE_H) >>> 7;
+            long BP_SE             = (BP & ~FILE_A) >>> 9;
+            end = addMoves(moves, end, BP_SW & WP, DELTA_SW, true);
+            end = addMoves(moves, end, BP_SE & WP, DELTA_SE, true);
+        }
+        placeFirst(moves, offset, end, first);
+        return end - offset;
+    }
+
+    // Allocation-free variant of getAllMoves, see getCaptureMoves(int[], int, int).
+    public int getAllMoves(int[] moves, int offset, int first) {
+        int end = offset;
+        long emptySquares = ~(WP | BP);
+        if (sideToMove == WHITE) {
+            long WP_N              = (WP << 8) & emptySquares;
+            long WP_NW             = (WP & ~FILE_H) << 9;
+            long WP_NE             = (WP & ~FILE_A) << 7;
+
+            end = addMoves(moves, end, WP_NW & BP, DELTA_NW, true);
+            end = addMoves(moves, end, WP_NE & BP, DELTA_NE, true);
+            end = addMoves(moves, end, WP_N, DELTA_N, false);
+            end = addMoves(moves, end, WP_NW & emptySquares, DELTA_NW, false);
+            end = addMoves(moves, end, WP_NE & emptySquares, DELTA_NE, false);
+        } else {
+            long BP_S              = (BP >>> 8) & emptySquares;
+            long BP_SW             = (BP & ~FILE_H) >>> 7;
+            long BP_SE             = (BP & ~FILE_A) >>> 9;
+
+            end = addMoves(moves, end, BP_SW & WP, DELTA_SW, true);
+            end = addMoves(moves, end, BP_SE & WP, DELTA_SE, true);
+            end = addMoves(moves, end, BP_S, DELTA_S, false);
+            end = addMoves(moves, end, BP_SW & emptySquares, DELTA_SW, false);
+            end = addMoves(moves, end, BP_SE & emptySquares, DELTA_SE, false);
+        }
+        placeFirst(moves, offset, end, first);
+        return end - offset;
+    }
+
+    private static int addMoves(int[] moves, int index, long bitboard, int delta, boolean areCaptures) {
+        while (bitboard != 0) {
+            long h = Long.highestOneBit(bitboard);
+            bitboard &= ~h;
+            int pos = Long.numberOfTrailingZeros(h);
+            moves[index++] = DiscoveryMove.createMove(pos + delta, pos, areCaptures);
+        }
+        return index;
+    }
+
+    // Moves 'first' to the front, shifting the moves before it up by one so the rest keep their
+    // order (captures first).
+    private static void placeFirst(int[] moves, int offset, int end, int first) {
+        if (first == DiscoveryMove.MOVE_NONE) {
+            return;
+        }
+        for (int i = offset; i < end; i++) {
+            if (moves[i] == first) {
+                System.arraycopy(moves, offset, moves, offset + 1, i - offset);
+                moves[offset] = first;
+                return;
+            }
+        }
+    }
+
+    // Counts the moves getAllMoves would generate, without generating them (bulk counting).
+    public int countMoves() {
+        long emptySquares = ~(WP | BP);
+        if (sideToMove == WHITE) {
+            long WP_NW = (WP & ~FILE_H) << 9;
+            long WP_NE = (WP & ~FILE_A) << 7;
+            return Long.bitCount((WP << 8) & emptySquares)
+                 + Long.bitCount(WP_NW & ~WP)
+                 + Long.bitCount(WP_NE & ~WP);
+        } else {
+            long BP_SW = (BP & ~FILE_H) >>> 7;
+            long BP_SE = (BP & ~FILE_A) >>> 9;
+            return Long.bitCount((BP >>> 8) & emptySquares)
+                 + Long.bitCount(BP_SW & ~BP)
+                 + Long.bitCount(BP_SE & ~BP);
+        }
+    }
+
     private void addMoves(ArrayList<Integer> moves, long bitboard, int delta, boolean areCaptures, int pv) {
         while (bitboard != 0) {
             long h = Long.highestOneBit(bitboard);
@@ -289,12 +379,39 @@ public class DiscoveryState {
         return result;
     }
 
+    public long getHashKey() {
+        return key;
+    }
+
+    public int getRows() {
+        return 8;
+    }
+
+    public int getCols() {
+        return 8;
+    }
+
+    // The bitboard of the pieces of 'color'.
+    public long getPieces(int color) {
+        return color == WHITE ? WP : BP;
+    }
+
     public int getPlayerToMove() {
         return sideToMove;
     }
 
+    // Progress key of the position. Pieces never move backwards and captures are permanent, so
+    // along any line of play the piece counts never grow and the rearmost piece of a side never
+    // falls back. Packs the white and black piece counts (5 bits each), then the rank of the
+    // rearmost white piece and that of the rearmost black piece counted from rank 8 (3 bits each).
+    public int getProgress() {
+        int whiteRear = (WP == 0 ? 7 : Long.numberOfTrailingZeros(WP) >>> 3);
+        int blackRear = (BP == 0 ? 7 : Long.numberOfLeadingZeros(BP) >>> 3);
+        return Long.bitCount(WP) | (Long.bitCount(BP) << 5) | (whiteRear << 10) | (blackRear << 13);
+    }
+
     public void reset() {
-        setup(INITIAL_FEN);
+        setup(RANK_1 | RANK_2, RANK_7 | RANK_8, WHITE);
     }
 
     @Override
@@ -336,6 +453,14 @@ public class DiscoveryState {
             System.out.println();
         }
         System.out.println("  A B C D E F G H ");
+        System.out.println("Result: " + getResult());
+        System.out.println("FEN-str: " + toString());
+        System.out.print("Moves:");
+        for (Move move : getActions(null)) {
+            System.out.print(' ');
+            System.out.print(move.toStr());
+        }
+        System.out.println();
         System.out.println();
     }
 
@@ -445,43 +570,151 @@ public class DiscoveryState {
         return protectionValue;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // State interface (moves as shared DiscoveryMove.serialize() instances)
+    ///////////////////////////////////////////////////////////////////////////
+
+    public ArrayList<Move> getActions(Move first) {
+        if (isTerminal()) {
+            return new ArrayList<Move>(0);
+        }
+        int firstMove = (first == null ? DiscoveryMove.MOVE_NONE : DiscoveryMove.deserialize(first));
+        int count = getAllMoves(actions, 0, firstMove);
+        ArrayList<Move> moves = new ArrayList<Move>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(DiscoveryMove.serialize(actions[i]));
+        }
+        return moves;
+    }
+
+    public void make(Move move) {
+        make(DiscoveryMove.deserialize(move));
+    }
+
+    public void retract(Move move) {
+        retract(DiscoveryMove.deserialize(move));
+    }
+
+    public State copy() {
+        return new DiscoveryState(this);
+    }
+
+    public void copyInto(State target) {
+        DiscoveryState other = (DiscoveryState) target;
+        other.WP         = WP;
+        other.BP         = BP;
+        other.sideToMove = sideToMove;
+        other.key        = key;
+        other.result     = result;
+    }
+
+    // Snapshot: the two bitboards, the hash key and the side to move and result.
+    public int getSnapshotSize() {
+        return 4;
+    }
+
+    public void snapshot(long[] buffer, int offset) {
+        buffer[offset]     = WP;
+        buffer[offset + 1] = BP;
+        buffer[offset + 2] = key;
+        buffer[offset + 3] = sideToMove | (result.ordinal() << 1);
+    }
+
+    public void restore(long[] buffer, int offset) {
+        WP         = buffer[offset];
+        BP         = buffer[offset + 1];
+        key        = buffer[offset + 2];
+        sideToMove = (int) buffer[offset + 3] & 1;
+        result     = Result.of((int) (buffer[offset + 3] >>> 1));
+    }
+
     public Move isLegalMove(String strMove) {
+        if (isTerminal()) {
+            return null;
+        }
+        int count = getAllMoves(actions, 0, DiscoveryMove.MOVE_NONE);
+        for (int i = 0; i < count; i++) {
+            if (DiscoveryMove.stringify(actions[i]).equals(strMove)) {
+                return DiscoveryMove.serialize(actions[i]);
+            }
+        }
         return null;
     }
 
+    // Sets up a FEN: 64 squares (w, b or .), optionally followed by a space, and the side to move
+    // (0 or 1, white if missing).
     public boolean setup(String fen) {
-        // Valid FEN?
-        Matcher matcher = FEN_PATTERN.matcher(fen);
-        if (!matcher.find()) {
-            System.out.println("> INVALID FEN, EXITING: " + fen);
-            System.exit(-1);
+        if (fen.length() < NO_OF_SQUARES) {
+            reset();
+            return false;
         }
 
-        // Resets the state.
-        empty();
-
         // Create the WP and BP bitboards.
+        long white = EMPTY;
+        long black = EMPTY;
         for (int i = 0; i < NO_OF_SQUARES; i++) {
-            switch (matcher.group(1).charAt(i)) {
-                case 'w': WP |= (1L << (63L - i)); break;
-                case 'b': BP |= (1L << (63L - i)); break;
+            switch (fen.charAt(i)) {
+                case 'w': white |= (1L << (63 - i)); break;
+                case 'b': black |= (1L << (63 - i)); break;
+                case '.': break;
+                default: reset(); return false;
             }
         }
 
         // Parse the side to move.
-        sideToMove = matcher.group(2).equals("0") || matcher.group(2).equals("") ? WHITE : BLACK;
+        int i = NO_OF_SQUARES;
+        if (i < fen.length() && fen.charAt(i) == ' ') {
+            i++;
+        }
+        return setup(white, black, i < fen.length() && fen.charAt(i) == '1' ? BLACK : WHITE);
+    }
+
+    // Sets up the position from its bitboards and side to move.
+    private boolean setup(long white, long black, int side) {
+        WP = white;
+        BP = black;
+        sideToMove = side;
         result = Result.Unknown;
 
+        // Check if a legal position (same rules as BreakthroughState):
+        //  - side not-to-move must have at least one piece.
+        //  - maximum one piece on backrank, and not for side-to-move.
+        long us             = (sideToMove == WHITE ? WP : BP);
+        long them           = (sideToMove == WHITE ? BP : WP);
+        long usOnBackrank   = us & (sideToMove == WHITE ? RANK_8 : RANK_1);
+        long themOnBackrank = them & (sideToMove == WHITE ? RANK_1 : RANK_8);
+        if (them == 0 || usOnBackrank != 0 || Long.bitCount(themOnBackrank) > 1) {
+            reset();
+            return false;
+        }
+        if (themOnBackrank != 0 || us == 0) {
+            result = Result.Loss;
+        }
+
         // Update hash key.
         key = DiscoveryZobrist.getZobristKey(this);
 
-        // TODO: Validate legality?
         return true;
     }
 
-    private void empty() {
-        WP = EMPTY;
-        BP = EMPTY;
+    public int getEncodedSize() {
+        return 2 * 8 + 1;
+    }
+
+    public void encode(byte[] buffer, int offset) {
+        PositionCodec.putBits(buffer, offset, WP, 8);
+        PositionCodec.putBits(buffer, offset + 8, BP, 8);
+        buffer[offset + 16] = (byte) sideToMove;
+    }
+
+    public boolean decode(byte[] buffer, int offset) {
+        long white = PositionCodec.getBits(buffer, offset, 8);
+        long black = PositionCodec.getBits(buffer, offset + 8, 8);
+        if ((white & black) != 0) {
+            reset();
+            return false;
+        }
+        return setup(white, black, buffer[offset + 16] == 0 ? WHITE : BLACK);
     }
 
     public void printBitboard(long bb) {
@@ -500,4 +733,13 @@ public class DiscoveryState {
         return color ^ 1;
     }
 
+    // True if a position with progress key 'progress' can still arise in a game that has reached a
+    // position with progress key 'root' (see getProgress()).
+    public static boolean canFollow(int progress, int root) {
+        return (progress & 0x1F) <= (root & 0x1F)
+            && ((progress >>> 5) & 0x1F) <= ((root >>> 5) & 0x1F)
+            && ((progress >>> 10) & 0x7) >= ((root >>> 10) & 0x7)
+            && ((progress >>> 13) & 0x7) >= ((root >>> 13) & 0x7);
+    }
+
 }
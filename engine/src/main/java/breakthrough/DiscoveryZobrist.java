@@ -1,3 +1,5 @@
+package breakthrough;
+
 import java.util.Random;
 
 public class DiscoveryZobrist {
@@ -23,8 +25,24 @@ public class DiscoveryZobrist {
     public static long getZobristKey(final DiscoveryState state) {
         long key = 0L;
 
-        // Every piece on the board (hack, I know):
-        String s = state.toString();
+        // Every piece on the board:
+        for (int color = DiscoveryState.WHITE; color <= DiscoveryState.BLACK; color++) {
+            for (long pieces = state.getPieces(color); pieces != 0; pieces &= pieces - 1) {
+                key ^= PIECES[color][Long.numberOfTrailingZeros(pieces)];
+            }
+        }
+        // Side to move
+        if (state.getPlayerToMove() == DiscoveryState.BLACK) {
+            key ^= SIDE_TO_MOVE;
+        }
+        return key;
+    }
+
+    // Hashes an 8x8 FEN-like string, so that any state representation can be compared by key.
+    public static long getZobristKey(final String s) {
+        long key = 0L;
+
+        // Every piece on the board:
         for (int i = 0; i < 64; i++) {
             switch (s.charAt(i)) {
                 case 'b': key ^= PIECES[DiscoveryState.BLACK][63 - i]; break;
@@ -32,7 +50,7 @@ public class DiscoveryZobrist {
             }
         }
         // Side to move
-        if (state.getPlayerToMove() == DiscoveryState.BLACK) { // Black to move.
+        if (s.length() > 65 && s.charAt(65) == '1') { // Black to move.
             key ^= SIDE_TO_MOVE;
         }
         return key;
@@ -1,3 +1,5 @@
+package breakthrough;
+
 import java.util.ArrayList;
 
 public class Evaluator {
@@ -99,8 +101,6 @@ public class Evaluator {
         System.out.println("[Bitboard]  No of moves: " + moves2.size());
         */
 
-        //perft(6, state1, state2);
-
         /*
         for (Move m : moves) {
             state.make(m);
@@ -131,53 +131,6 @@ public class Evaluator {
         //System.out.println("Move: " + m.toStr());
         //state.display();
     }
-    /*
-    public static void perft(int depth, OldState state1, DiscoveryState state2) {
-        if (depth <= 0 || state1.isTerminal()) {
-            assert !state1.isTerminal() || state2.isTerminal();
-            return;
-        }
-
-        ArrayList<Move> moves1 = state1.getActions(null);
-        //ArrayList<Move> moves2 = state2.getActions(null);
-        for (Move m : moves1) {
-
-            Move move2 = null;
-            for (Move aaa : moves2) {
-                if (aaa.toStr().equals(m.toStr())) {
-                    move2 = aaa;
-                    break;
-                }
-            }
-            if (move2 == null) {
-                System.out.println("NO BITBOARD MOVE FOUND FOR: " + m.toStr());
-                //state2.printBitboard(state2.BP);
-                //state2.printBitboard(state2.WP);
-                //long a = ((state2.WP & ~DiscoveryState.FILE_A) << 9) & state2.BP;
-
-                //while (a != 0) {
-                //    long h = Long.highestOneBit(a);
-                //    a &= ~h;
-                //    int pos = 63 - Long.numberOfLeadingZeros(h);
-                //    System.out.println("Move from: " + (pos + -9) + " -> " + pos);
-                //    //moves.add(new Move(pos + delta, -2, pos, -2, areCaptures));
-                //}
-
-                System.out.println("DISCOVERY:");
-                state1.display();
-                System.out.println("BITBOARD:");
-                state2.display();
-            }
-
-            state1.make(m);
-            state2.make(move2);
-            perft(depth - 1, state1, state2);
-            state1.retract(m);
-            state2.retract(move2);
-        }
-    }
-    */
-
     public static void compareTwoLists(ArrayList<String> s1, ArrayList<String> s2) {
         System.out.println("NOT IN BITBOARD");
         for (String s : s1) {
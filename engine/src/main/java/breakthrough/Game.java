@@ -1,3 +1,5 @@
+package breakthrough;
+
 import java.util.ArrayList;
 
 public class Game {
@@ -32,7 +34,7 @@ public class Game {
     }
 
     public void reset( State init ) {
-        m_initialState.setup( init.toString() );
+        PositionCodec.copy( init, m_initialState );
         m_moves.clear();
     }
 
@@ -41,7 +43,7 @@ public class Game {
     }
 
     void makeStateCurrent( State state ) {
-        state.setup( getInitialState().toString() );
+        PositionCodec.copy( getInitialState(), state );
         for ( Move move : m_moves ) {
             state.make( move );
         }
@@ -0,0 +1,617 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * MCTSTree
+ *
+ * The search tree of AgentMCTS, a struct of primitive fields indexed by node, stored in arrays
+ * (ArrayMCTSTree) or off the heap (OffHeapMCTSTree). The children of a node are a contiguous
+ * block of nodes (firstChild ... firstChild + childCount - 1), allocated all at once when the
+ * node is expanded, so selecting a child scans consecutive elements. The blocks of freed
+ * subtrees are kept on free lists, by size, and handed out again. A node stores its move as
+ * an int (see encodeMove()), which getMove() maps back to a shared Move, so descending the tree
+ * creates no objects; only expanding a node does (the State's move list).
+ *
+ * Several threads may search the tree at once, through the concurrent operations (see
+ * expandConcurrently()): statistics are then updated atomically, and a node is expanded by the
+ * one thread that claims it.
+ *
+ * The tree never grows beyond its memory limit. When it is nearly full, prune() frees the
+ * subtrees of the least visited nodes (which become leaves again), and when even that does not
+ * make room, expand() leaves the node a leaf.
+ */
+public abstract class MCTSTree {
+
+    // Constants
+    public static final int NONE      = -1;
+    public static final int EXPANDING = -2;  // firstChild of a node another thread is expanding.
+
+    protected static final int INITIAL_CAPACITY = 1 << 12;
+
+    private static final int PRUNE_MARGIN = 1 << 10;   // Free nodes below which prune() is due.
+    private static final int LARGE_BLOCKS = 256;       // Free list of the blocks of this size or larger.
+
+    // Every move on boards of up to MultiWordState.MAX_ROWS x MAX_COLS, by encoding (see encodeMove()).
+    private static final Move[] MOVES = new Move[1 << 14];
+
+    // Allocation
+    private int   top;           // Nodes [0, top) have been handed out at some point.
+    private int   size;          // Nodes in use.
+    private int[] freeBlocks;    // Indexed by block size, the first free block, linked through firstChild
+                                 // (with its size in visits).
+    private long  maxNodes;
+    private int   prunedSize;    // Size after the last prune(); no use pruning again before it grows.
+    private volatile boolean full; // An expansion found no room since the last prune().
+
+    private int root;
+
+    // Statistics
+    private long prunedNodes;
+    private int  prunes;
+
+    // Subclasses call setMemoryLimit() once their storage is set up.
+    protected MCTSTree() {
+        freeBlocks = new int[LARGE_BLOCKS + 1];
+    }
+
+    // Node statistics and structure: visits, value, parent, firstChild (NONE if not expanded),
+    // childCount, explored (children simulated so far; always the first ones of the block) and
+    // move (the move leading to the node, see encodeMove()).
+
+    public abstract int getVisits(int node);
+
+    public abstract long getValue(int node);
+
+    public abstract int getFirstChild(int node);
+
+    public abstract int getChildCount(int node);
+
+    protected abstract int getParent(int node);
+
+    protected abstract int getExplored(int node);
+
+    protected abstract int getEncodedMove(int node);
+
+    protected abstract void setVisits(int node, int visits);
+
+    protected abstract void setValue(int node, long value);
+
+    protected abstract void setParent(int node, int parent);
+
+    protected abstract void setFirstChild(int node, int firstChild);
+
+    protected abstract void setChildCount(int node, int childCount);
+
+    protected abstract void setExplored(int node, int explored);
+
+    protected abstract void setEncodedMove(int node, int move);
+
+    // Atomic and ordered access, for concurrent searches.
+
+    protected abstract void addVisits(int node, int visits);
+
+    protected abstract void addValue(int node, long value);
+
+    protected abstract int getAndIncrementExplored(int node);
+
+    protected abstract int getFirstChildAcquire(int node);
+
+    protected abstract void setFirstChildRelease(int node, int firstChild);
+
+    protected abstract boolean casFirstChild(int node, int expected, int firstChild);
+
+    // Bytes of storage per node.
+    public abstract int getNodeBytes();
+
+    // Nodes the storage has room for.
+    public abstract int getCapacity();
+
+    // Resizes the storage to room for 'capacity' nodes, keeping the nodes that still fit (except
+    // from setMemoryLimit(), which discards them anyway).
+    protected abstract void resize(int capacity);
+
+    // The nodes setMemoryLimit() allocates storage for, out of 'maxNodes'; the storage grows
+    // from there as nodes are allocated.
+    protected int getInitialCapacity(long maxNodes) {
+        return (int) Math.min(INITIAL_CAPACITY, maxNodes);
+    }
+
+    // The largest number of nodes the storage can hold.
+    protected abstract int getMaxCapacity();
+
+    // Limits the tree to about 'bytes' bytes of storage, and discards it.
+    public void setMemoryLimit(long bytes) {
+        maxNodes = Math.max(2 * PRUNE_MARGIN, Math.min(bytes / getNodeBytes(), getMaxCapacity()));
+        resize(getInitialCapacity(maxNodes));
+        clear();
+    }
+
+    public long getMemoryLimit() {
+        return maxNodes * getNodeBytes();
+    }
+
+    // Bytes of storage in use.
+    public long getBytesUsed() {
+        return (long) size * getNodeBytes();
+    }
+
+    // Nodes freed by prune() since the tree was created.
+    public long getPrunedNodes() {
+        return prunedNodes;
+    }
+
+    public int getPrunes() {
+        return prunes;
+    }
+
+    // Allocates all the storage the memory limit allows, which must be done before a concurrent
+    // search (the storage is not resized during one).
+    public void reserve() {
+        if (getCapacity() < maxNodes) {
+            resize((int) maxNodes);
+        }
+    }
+
+    // Discards the whole tree and starts a new one with an unvisited root.
+    public void clear() {
+        top  = 0;
+        size = 0;
+        prunedSize = 0;
+        full       = false;
+        Arrays.fill(freeBlocks, NONE);
+        root = allocate(1);
+        init(root, NONE, 0);
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    // Nodes in use.
+    public int size() {
+        return size;
+    }
+
+    public Move getMove(int node) {
+        return decodeMove(getEncodedMove(node));
+    }
+
+    public boolean isExpanded(int node) {
+        return getFirstChild(node) != NONE;
+    }
+
+    public boolean isFullyExpanded(int node) {
+        return getExplored(node) >= getChildCount(node);
+    }
+
+    // Adds a child to 'node' for each of 'moves', in one block. Leaves the node unexpanded if
+    // the tree is full.
+    public void expand(int node, ArrayList<Move> moves) {
+        assert !isExpanded(node);
+        int count = moves.size();
+        int first = (count > 0 ? allocate(count) : NONE);
+        if (first == NONE) {
+            full |= (count > 0);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            init(first + i, node, encodeMove(moves.get(i)));
+        }
+        setFirstChild(node, first);
+        setChildCount(node, count);
+        setExplored(node, 0);
+    }
+
+    // Returns the next child of 'node' that has not been simulated, and counts it as explored.
+    public int nextUnexplored(int node) {
+        int explored = getExplored(node);
+        assert explored < getChildCount(node);
+        setExplored(node, explored + 1);
+        int next = getFirstChild(node) + explored;
+        assert getVisits(next) == 0;
+        return next;
+    }
+
+    // The child of a fully expanded node with the highest UCB value (the highest average if c == 0).
+    public int bestChild(int node, double c) {
+        int    first     = getFirstChild(node);
+        int    end       = first + getChildCount(node);
+        double logVisits = Math.log(getVisits(node));
+        int    bestNode  = NONE;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int n = getVisits(child);
+            if (n == 0) {
+                // Only in a concurrent search, a child another thread has just claimed.
+                if (c != 0) {
+                    return child;
+                }
+                continue;
+            }
+
+            double ucb = (double) getValue(child) / n;
+            if (c != 0) {
+                ucb += c * Math.sqrt(logVisits / n);
+            }
+            if (ucb > bestValue) {
+                bestNode  = child;
+                bestValue = ucb;
+            }
+        }
+
+        assert bestNode != NONE;
+        return bestNode;
+    }
+
+    // The child of 'node' with the most visits.
+    public int mostVisitedChild(int node) {
+        int first    = getFirstChild(node);
+        int end      = first + getChildCount(node);
+        int bestNode = NONE;
+        int mostVisits = Integer.MIN_VALUE;
+        for (int child = first; child < end; child++) {
+            if (getVisits(child) > mostVisits) {
+                mostVisits = getVisits(child);
+                bestNode   = child;
+            }
+        }
+        return bestNode;
+    }
+
+    // The child of 'node' reached by 'm', or NONE.
+    public int findChild(int node, Move m) {
+        int encoded = encodeMove(m);
+        int first   = getFirstChild(node);
+        for (int child = first; child < first + getChildCount(node); child++) {
+            if (getEncodedMove(child) == encoded) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    // Adds the result of a simulation to 'node' and its ancestors, negated at every ply.
+    public void backup(int node, int delta) {
+        backup(node, delta, 1);
+    }
+
+    // Backs up the summed results 'delta' of 'visits' simulations at once.
+    public void backup(int node, long delta, int visits) {
+        while (node != NONE) {
+            setVisits(node, getVisits(node) + visits);
+            setValue(node, getValue(node) + delta);
+            delta = -delta;
+            node = getParent(node);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Concurrent search
+    ///////////////////////////////////////////////////////////////////////////
+
+    // The first child of 'node', NONE if it is not expanded or EXPANDING while another thread
+    // expands it.
+    public int getFirstChildConcurrently(int node) {
+        return getFirstChildAcquire(node);
+    }
+
+    // Expands 'node' like expand(), unless another thread claimed it first. Returns its first
+    // child, or NONE if the node remains a leaf for now (claimed by another thread, no moves or
+    // no room left).
+    public int expandConcurrently(int node, ArrayList<Move> moves) {
+        int count = moves.size();
+        if (count == 0 || !casFirstChild(node, NONE, EXPANDING)) {
+            return NONE;
+        }
+        int first;
+        synchronized (this) {
+            first = allocate(count);
+        }
+        if (first == NONE) {
+            full = true;
+            setFirstChildRelease(node, NONE);
+            return NONE;
+        }
+        for (int i = 0; i < count; i++) {
+            init(first + i, node, encodeMove(moves.get(i)));
+        }
+        setChildCount(node, count);
+        setExplored(node, 0);
+        setFirstChildRelease(node, first); // Publishes the children.
+        return first;
+    }
+
+    // Claims the next child of an expanded 'node' that has not been simulated, or returns NONE
+    // if every child has been claimed.
+    public int claimUnexplored(int node) {
+        int count = getChildCount(node);
+        if (getExplored(node) >= count) {
+            return NONE;
+        }
+        int explored = getAndIncrementExplored(node);
+        return (explored < count ? getFirstChild(node) + explored : NONE);
+    }
+
+    // Adds 'visits' lost simulations to 'node', which a thread is about to search, to turn the
+    // other threads away from it until backupConcurrently() takes them back.
+    public void addVirtualLoss(int node, int visits) {
+        if (visits > 0) {
+            addVisits(node, visits);
+            addValue(node, (long) visits * State.LOSS_VALUE);
+        }
+    }
+
+    // backup() for a concurrent search, which also takes back the virtual losses of the nodes
+    // below the root.
+    public void backupConcurrently(int node, int delta, int virtualLoss) {
+        while (node != NONE) {
+            int parent = getParent(node);
+            int undo   = (parent != NONE ? virtualLoss : 0);
+            addVisits(node, 1 - undo);
+            addValue(node, delta - (long) undo * State.LOSS_VALUE);
+            delta = -delta;
+            node = parent;
+        }
+    }
+
+    // Makes 'node' the root and frees the rest of the tree. Returns the (new) root.
+    public int setRoot(int node) {
+        if (node == root) {
+            return root;
+        }
+        // The node's block is shared with its siblings, so it moves to a block of its own, the
+        // one the old root frees (no new one may be left when the tree is full).
+        int  visits     = getVisits(node);
+        long value      = getValue(node);
+        int  first      = getFirstChild(node);
+        int  childCount = getChildCount(node);
+        int  explored   = getExplored(node);
+        int  move       = getEncodedMove(node);
+        setFirstChild(node, NONE);
+        setChildCount(node, 0);
+
+        freeChildren(root);
+        release(root, 1);
+
+        int newRoot = allocate(1);
+        assert newRoot != NONE;
+        setVisits(newRoot, visits);
+        setValue(newRoot, value);
+        setParent(newRoot, NONE);
+        setFirstChild(newRoot, first);
+        setChildCount(newRoot, childCount);
+        setExplored(newRoot, explored);
+        setEncodedMove(newRoot, move);
+        for (int child = first; child < first + childCount; child++) {
+            setParent(child, newRoot);
+        }
+        root = newRoot;
+        prunedSize = 0;
+        full       = false;
+        return root;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Pruning
+    ///////////////////////////////////////////////////////////////////////////
+
+    // True if the tree is (close to) its memory limit and has grown since it was last pruned.
+    public boolean isNearlyFull() {
+        return (full || size > maxNodes - PRUNE_MARGIN) && size > prunedSize;
+    }
+
+    // Frees the subtrees of the least visited nodes, about half of the tree: the children of
+    // every node with fewer than 2^k visits, for the smallest k that frees that many. Must not
+    // be called during a descent, whose nodes it may free. Returns the number of nodes freed.
+    public int prune() {
+        // freed[k]: nodes freed by pruning the nodes with fewer than 2^k visits.
+        long[] freed = new long[33];
+        countPrunable(root, freed);
+        int k = 0;
+        while (k < 32 && freed[k] < size / 2) {
+            k++;
+        }
+        int before = size;
+        pruneBelow(root, 1L << k);
+        collectFreeBlocks();
+        prunedSize = size;
+        full       = false;
+        prunes++;
+        prunedNodes += before - size;
+        return before - size;
+    }
+
+    // Returns the number of descendants of 'node', and adds them to freed[k] for every k at
+    // which 'node' is the highest node of its branch to be pruned.
+    private long countPrunable(int node, long[] freed) {
+        int first = getFirstChild(node);
+        if (first == NONE) {
+            return 0;
+        }
+        long descendants = 0;
+        for (int child = first; child < first + getChildCount(node); child++) {
+            descendants += 1 + countPrunable(child, freed);
+        }
+        if (node != root) {
+            int visits       = getVisits(node);
+            int parentVisits = getVisits(getParent(node));
+            // Pruned for the k with visits < 2^k <= parentVisits.
+            for (int k = 64 - Long.numberOfLeadingZeros(visits); k < 33 && (1L << k) <= parentVisits; k++) {
+                freed[k] += descendants;
+            }
+        }
+        return descendants;
+    }
+
+    private void pruneBelow(int node, long visits) {
+        int first = getFirstChild(node);
+        if (first == NONE) {
+            return;
+        }
+        if (node != root && getVisits(node) < visits) {
+            freeChildren(node);
+            return;
+        }
+        for (int child = first; child < first + getChildCount(node); child++) {
+            pruneBelow(child, visits);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Allocation
+    ///////////////////////////////////////////////////////////////////////////
+
+    private void init(int node, int parentNode, int encodedMove) {
+        setVisits(node, 0);
+        setValue(node, 0);
+        setParent(node, parentNode);
+        setFirstChild(node, NONE);
+        setChildCount(node, 0);
+        setExplored(node, 0);
+        setEncodedMove(node, encodedMove);
+    }
+
+    // Returns the first node of a block of 'count' consecutive nodes, or NONE if the tree is full.
+    private int allocate(int count) {
+        int first = NONE;
+        if (count < LARGE_BLOCKS && freeBlocks[count] != NONE) {
+            first = freeBlocks[count];
+            freeBlocks[count] = getFirstChild(first);
+        } else if (top + count <= maxNodes) {
+            if (top + count > getCapacity()) {
+                resize((int) Math.min(Math.max(top + count, 2L * getCapacity()), maxNodes));
+            }
+            first = top;
+            top += count;
+        } else {
+            // Splits the first larger free block (one of the large ones may do).
+            for (int list = Math.min(count + 1, LARGE_BLOCKS); list <= LARGE_BLOCKS && first == NONE; list++) {
+                int block = freeBlocks[list];
+                int prev  = NONE;
+                while (block != NONE && getVisits(block) < count) {
+                    prev  = block;
+                    block = getFirstChild(block);
+                }
+                if (block != NONE) {
+                    if (prev == NONE) {
+                        freeBlocks[list] = getFirstChild(block);
+                    } else {
+                        setFirstChild(prev, getFirstChild(block));
+                    }
+                    int rest = getVisits(block) - count;
+                    if (rest > 0) {
+                        size += rest;
+                        release(block + count, rest);
+                    }
+                    first = block;
+                }
+            }
+            if (first == NONE) {
+                return NONE;
+            }
+        }
+        size += count;
+        return first;
+    }
+
+    private void release(int first, int count) {
+        int list = Math.min(count, LARGE_BLOCKS);
+        setVisits(first, count);
+        setFirstChild(first, freeBlocks[list]);
+        freeBlocks[list] = first;
+        size -= count;
+    }
+
+    // Rebuilds the free lists from the nodes not in the tree, merging adjacent free blocks into
+    // one (pruning leaves many small blocks behind, too small for most new children).
+    private void collectFreeBlocks() {
+        long[] live = new long[(top + 63) >>> 6];
+        markLive(root, live);
+        live[root >>> 6] |= 1L << root;
+
+        Arrays.fill(freeBlocks, NONE);
+        int nodes = size;
+        size = top;
+        int node = 0;
+        while (node < top) {
+            if ((live[node >>> 6] & (1L << node)) != 0) {
+                node++;
+                continue;
+            }
+            int first = node;
+            while (node < top && (live[node >>> 6] & (1L << node)) == 0) {
+                node++;
+            }
+            if (node == top) {
+                size -= top - first;
+                top = first;
+            } else {
+                release(first, node - first);
+            }
+        }
+        assert size == nodes;
+    }
+
+    private void markLive(int node, long[] live) {
+        int first = getFirstChild(node);
+        if (first == NONE) {
+            return;
+        }
+        for (int child = first; child < first + getChildCount(node); child++) {
+            live[child >>> 6] |= 1L << child;
+            markLive(child, live);
+        }
+    }
+
+    // Frees the blocks of all descendants of 'node'.
+    private void freeChildren(int node) {
+        int first = getFirstChild(node);
+        if (first == NONE) {
+            return;
+        }
+        int count = getChildCount(node);
+        for (int child = first; child < first + count; child++) {
+            freeChildren(child);
+        }
+        setFirstChild(node, NONE);
+        setChildCount(node, 0);
+        setExplored(node, 0);
+        release(first, count);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Moves
+    ///////////////////////////////////////////////////////////////////////////
+
+    // A move of any board size (at most 32 files and ranks) as an int: its index (see
+    // Move.index()), which is below 2^14.
+    public static int encodeMove(Move m) {
+        return m.getIndex();
+    }
+
+    // The shared Move of an encoded move.
+    public static Move decodeMove(int m) {
+        return MOVES[m];
+    }
+
+    static {
+        for (int row = 0; row < MultiWordState.MAX_ROWS; row++) {
+            for (int col = 0; col < MultiWordState.MAX_COLS; col++) {
+                for (int direction = 0; direction < 6; direction++) {
+                    int toCol = col + direction % 3 - 1;
+                    int toRow = row + (direction < 3 ? 1 : -1);
+                    if (toCol < 0 || toCol >= MultiWordState.MAX_COLS || toRow < 0 || toRow >= MultiWordState.MAX_ROWS) {
+                        continue;
+                    }
+                    for (int capture = 0; capture < 2; capture++) {
+                        Move move = new Move(col, row, toCol, toRow, capture != 0);
+                        MOVES[encodeMove(move)] = move;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package breakthrough;
+
+/**
+ *
+ * Move
+ *
+ * Immutable; the states hand out shared instances from precomputed tables. Every move also
+ * has an index, an int that identifies it (see index()), so moves from different tables (e.g.
+ * a State's and MCTSTree's) are compared on that instead of on the five fields.
+ *
+ */
+
+public class Move
+{
+    final int from_col;
+    final int from_row;
+    final int to_col;
+    final int to_row;
+    final boolean capture;
+    final int index;
+
+    private static String s_columns = "abcdefghijklmnopqrstuvwxyz";
+    private static String s_rows    = "1234567890ABCDEFGHIJKLMNOP";
+
+    public Move( int fc, int fr, int tc, int tr, boolean c )
+    {
+       from_col = fc;
+       from_row = fr;
+       to_col   = tc;
+       to_row   = tr;
+       capture  = c;
+       index    = index( fc, fr, tc, tr, c );
+    }
+
+    // Moves on files and ranks (at most 32 of each) pack the from-square (column | row << 5),
+    // the direction (column step + 1, plus 3 for a move down the board) << 10 and the capture
+    // flag << 13, so the index is below 2^14. OldState's moves number the squares of its
+    // padded board in the columns (rows -1) and get the from- and to-square, the capture flag
+    // << 16 and 1 << 20 instead.
+    static int index( int fc, int fr, int tc, int tr, boolean c )
+    {
+        if ( fr < 0 ) {
+            return ( 1 << 20 ) | fc | ( tc << 8 ) | ( c ? 1 << 16 : 0 );
+        }
+        int direction = ( tc - fc + 1 ) + ( tr < fr ? 3 : 0 );
+        return fc | ( fr << 5 ) | ( direction << 10 ) | ( c ? 1 << 13 : 0 );
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public String toStr()
+    {
+        String str = "";
+        str += s_columns.charAt(from_col);
+        str += s_rows.charAt(from_row);
+        str += (capture ? "x" : "-" );
+        str += s_columns.charAt(to_col);
+        str += s_rows.charAt(to_row);
+        return str;
+    }
+
+    boolean equals ( Move other ) {
+        return index == other.index;
+    }
+
+}
+
@@ -0,0 +1,580 @@
+package breakthrough;
+
+import java.util.ArrayList;
+
+/**
+ * MultiWordState
+ *
+ * Bitboard state for any board size BreakthroughState supports (up to 25x25). Every side has a
+ * bitboard of long[] words, square = row * cols + col with row 0 being White's home row. Moves
+ * are generated by shifting whole bitboards (carrying bits across word boundaries) and masking
+ * off the edge files. The Zobrist key (see Zobrist) is updated incrementally in make/retract.
+ */
+public class MultiWordState implements State {
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Constants
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static final int MIN_ROWS = 4;
+    public static final int MAX_ROWS = 25;
+    public static final int MIN_COLS = 2;
+    public static final int MAX_COLS = 25;
+
+    // Colors
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Move directions, seen from the board (towards column a / towards the last column).
+    private static final int FORWARD = 0;
+    private static final int LEFT    = 1;
+    private static final int RIGHT   = 2;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Member variables
+    ///////////////////////////////////////////////////////////////////////////
+
+    // Geometry
+    private final int    rows;
+    private final int    cols;
+    private final int    words;
+    private final long[] board;        // All squares of the board.
+    private final long[] notFirstCol;  // All squares but column a.
+    private final long[] notLastCol;   // All squares but the last column.
+    private final Move[] moves;        // Flyweights, see moveIndex().
+    private final long[][] zobrist;    // Zobrist.PIECES by our square numbering.
+
+    // Position
+    private final long[][] pieces;
+    private final int[]    countPces;
+    private int            turn;
+    private Result         result;
+    private long           key;
+
+    // Scratch bitboards for move generation.
+    private final long[] empty;
+    private final long[] source;
+    private final long[] targets;
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Functions
+    ///////////////////////////////////////////////////////////////////////////
+
+    public MultiWordState(int row, int col) {
+        rows  = Math.max(MIN_ROWS, Math.min(row, MAX_ROWS));
+        cols  = Math.max(MIN_COLS, Math.min(col, MAX_COLS));
+        words = (rows * cols + 63) / 64;
+
+        board       = new long[words];
+        notFirstCol = new long[words];
+        notLastCol  = new long[words];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int square = r * cols + c;
+                setBit(board, square);
+                if (c != 0)        setBit(notFirstCol, square);
+                if (c != cols - 1) setBit(notLastCol, square);
+            }
+        }
+
+        moves = new Move[2 * rows * cols * 3 * 2];
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int from = 0; from < rows * cols; from++) {
+                for (int direction = FORWARD; direction <= RIGHT; direction++) {
+                    for (int capture = 0; capture < 2; capture++) {
+                        int fromRow = from / cols;
+                        int fromCol = from % cols;
+                        int toRow   = fromRow + (color == WHITE ? 1 : -1);
+                        int toCol   = fromCol + (direction == LEFT ? -1 : direction == RIGHT ? 1 : 0);
+                        if (toRow >= 0 && toRow < rows && toCol >= 0 && toCol < cols) {
+                            moves[moveIndex(color, from, direction, capture == 1)] =
+                                    new Move(fromCol, fromRow, toCol, toRow, capture == 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        zobrist = new long[2][rows * cols];
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int square = 0; square < rows * cols; square++) {
+                zobrist[color][square] = Zobrist.PIECES[color][(square / cols) * cols + cols - 1 - square % cols];
+            }
+        }
+
+        pieces    = new long[2][words];
+        countPces = new int[2];
+        empty     = new long[words];
+        source    = new long[words];
+        targets   = new long[words];
+        reset();
+    }
+
+    // Shares the board masks, move flyweights and Zobrist keys (never modified) with 'other'.
+    private MultiWordState(MultiWordState other) {
+        rows        = other.rows;
+        cols        = other.cols;
+        words       = other.words;
+        board       = other.board;
+        notFirstCol = other.notFirstCol;
+        notLastCol  = other.notLastCol;
+        moves       = other.moves;
+        zobrist     = other.zobrist;
+
+        pieces    = new long[2][words];
+        countPces = new int[2];
+        empty     = new long[words];
+        source    = new long[words];
+        targets   = new long[words];
+        other.copyInto(this);
+    }
+
+    private int moveIndex(int color, int from, int direction, boolean capture) {
+        return ((color * rows * cols + from) * 3 + direction) * 2 + (capture ? 1 : 0);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public long getHashKey() {
+        return key;
+    }
+
+    // Computes the Zobrist key from scratch (the key is otherwise kept up to date incrementally).
+    public long computeHashKey() {
+        long k = 0L;
+        for (int square = 0; square < rows * cols; square++) {
+            if (testBit(pieces[WHITE], square)) k ^= zobrist[WHITE][square];
+            if (testBit(pieces[BLACK], square)) k ^= zobrist[BLACK][square];
+        }
+        if (turn == BLACK) {
+            k ^= Zobrist.SIDE_TO_MOVE;
+        }
+        return k;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Move generation
+    ///////////////////////////////////////////////////////////////////////////
+
+    public ArrayList<Move> getActions(Move first) {
+        ArrayList<Move> list = new ArrayList<Move>();
+        if (isTerminal()) {
+            return list;
+        }
+
+        Move firstMove = (first == null ? null : lookup(first));
+        long[] us   = pieces[turn];
+        long[] them = pieces[turn ^ 1];
+        for (int i = 0; i < words; i++) {
+            empty[i] = board[i] & ~(us[i] | them[i]);
+        }
+
+        if (turn == WHITE) {
+            shiftUp(us, cols, targets);
+            addMoves(list, targets, empty, null, cols, FORWARD, firstMove);
+            and(us, notFirstCol, source);
+            shiftUp(source, cols - 1, targets);
+            addMoves(list, targets, empty, them, cols - 1, LEFT, firstMove);
+            and(us, notLastCol, source);
+            shiftUp(source, cols + 1, targets);
+            addMoves(list, targets, empty, them, cols + 1, RIGHT, firstMove);
+        } else {
+            shiftDown(us, cols, targets);
+            addMoves(list, targets, empty, null, -cols, FORWARD, firstMove);
+            and(us, notFirstCol, source);
+            shiftDown(source, cols + 1, targets);
+            addMoves(list, targets, empty, them, -cols - 1, LEFT, firstMove);
+            and(us, notLastCol, source);
+            shiftDown(source, cols - 1, targets);
+            addMoves(list, targets, empty, them, -cols + 1, RIGHT, firstMove);
+        }
+        return list;
+    }
+
+    // Adds the moves to the squares in 'targets' that are empty, or hold one of 'captures'.
+    private void addMoves(ArrayList<Move> list, long[] targets, long[] empty, long[] captures,
+                          int delta, int direction, Move first) {
+        for (int i = 0; i < words; i++) {
+            long quiet   = targets[i] & empty[i];
+            long capture = (captures == null ? 0L : targets[i] & captures[i]);
+            long b = quiet | capture;
+            while (b != 0) {
+                long bit = b & -b;
+                b ^= bit;
+                int to   = (i << 6) + Long.numberOfTrailingZeros(bit);
+                Move move = moves[moveIndex(turn, to - delta, direction, (capture & bit) != 0)];
+                if (move == first) {
+                    list.add(0, move);
+                } else {
+                    list.add(move);
+                }
+            }
+        }
+    }
+
+    // dst = src shifted towards higher squares by 0 < n < 64, carrying bits into the next word.
+    private void shiftUp(long[] src, int n, long[] dst) {
+        for (int i = words - 1; i > 0; i--) {
+            dst[i] = (src[i] << n) | (src[i - 1] >>> (64 - n));
+        }
+        dst[0] = src[0] << n;
+        dst[words - 1] &= board[words - 1];
+    }
+
+    // dst = src shifted towards lower squares by 0 < n < 64, carrying bits into the previous word.
+    private void shiftDown(long[] src, int n, long[] dst) {
+        for (int i = 0; i < words - 1; i++) {
+            dst[i] = (src[i] >>> n) | (src[i + 1] << (64 - n));
+        }
+        dst[words - 1] = src[words - 1] >>> n;
+    }
+
+    private void and(long[] a, long[] b, long[] dst) {
+        for (int i = 0; i < words; i++) {
+            dst[i] = a[i] & b[i];
+        }
+    }
+
+    // Returns the flyweight for a move given by coordinates (e.g. from another state), or null.
+    private Move lookup(Move move) {
+        int direction = (move.to_col < move.from_col ? LEFT : move.to_col > move.from_col ? RIGHT : FORWARD);
+        if (move.from_row < 0 || move.from_row >= rows || move.from_col < 0 || move.from_col >= cols) {
+            return null;
+        }
+        return moves[moveIndex(turn, move.from_row * cols + move.from_col, direction, move.capture)];
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Make / retract
+    ///////////////////////////////////////////////////////////////////////////
+
+    public void make(Move move) {
+        assert !isTerminal();
+
+        int us   = turn;
+        int them = turn ^ 1;
+        int from = move.from_row * cols + move.from_col;
+        int to   = move.to_row * cols + move.to_col;
+
+        clearBit(pieces[us], from); key ^= zobrist[us][from];
+        setBit(pieces[us], to);     key ^= zobrist[us][to];
+        if (move.capture) {
+            clearBit(pieces[them], to); key ^= zobrist[them][to];
+            countPces[them]--;
+        }
+
+        // Side that moved wins if it reached the last row or took the last piece.
+        int toRow = to / cols;
+        if ((us == WHITE && toRow == rows - 1) || (us == BLACK && toRow == 0) || countPces[them] == 0) {
+            result = Result.Loss;
+        } else {
+            result = Result.Unknown;
+        }
+
+        turn = them;
+        key ^= Zobrist.SIDE_TO_MOVE;
+    }
+
+    public void retract(Move move) {
+        turn ^= 1;
+        key ^= Zobrist.SIDE_TO_MOVE;
+
+        int us   = turn;
+        int them = turn ^ 1;
+        int from = move.from_row * cols + move.from_col;
+        int to   = move.to_row * cols + move.to_col;
+
+        clearBit(pieces[us], to); key ^= zobrist[us][to];
+        setBit(pieces[us], from); key ^= zobrist[us][from];
+        if (move.capture) {
+            setBit(pieces[them], to); key ^= zobrist[them][to];
+            countPces[them]++;
+        }
+        result = Result.Unknown;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // State interface
+    ///////////////////////////////////////////////////////////////////////////
+
+    public boolean isTerminal() {
+        return result != Result.Unknown;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public int getPlayerToMove() {
+        return turn;
+    }
+
+    private void empty() {
+        for (int i = 0; i < words; i++) {
+            pieces[WHITE][i] = pieces[BLACK][i] = 0L;
+        }
+        countPces[WHITE] = countPces[BLACK] = 0;
+        turn   = WHITE;
+        result = Result.Unknown;
+        key    = 0L;
+    }
+
+    public void reset() {
+        empty();
+        for (int c = 0; c < cols; c++) {
+            for (int r = 0; r < 2; r++) {
+                put(WHITE, r * cols + c);
+                put(BLACK, (rows - 1 - r) * cols + c);
+            }
+        }
+    }
+
+    private void put(int color, int square) {
+        setBit(pieces[color], square);
+        key ^= zobrist[color][square];
+        countPces[color]++;
+    }
+
+    public boolean setup(String strFEN) {
+        boolean error = false;
+        boolean exit  = false;
+        int i = 0;
+        int n = strFEN.length();
+        empty();
+        for (int r = rows - 1; r >= 0 && !exit; --r) {
+            for (int c = 0; c < cols && !exit; ++c) {
+                if (i >= n) {
+                    exit = true;
+                } else {
+                    switch (strFEN.charAt(i)) {
+                        case 'w': put(WHITE, r * cols + c); break;
+                        case 'b': put(BLACK, r * cols + c); break;
+                        case '.': break;
+                        case ' ': exit = true; break;
+                        default: error = true; exit = true; break;
+                    }
+                    ++i;
+                }
+            }
+        }
+
+        if (!error && i < n) {
+            if (strFEN.charAt(i) == ' ') {
+                ++i;
+            }
+            error = !setTurn((i < n && strFEN.charAt(i) == '1') ? BLACK : WHITE);
+        }
+
+        if (error) {
+            reset();
+        }
+        return !error;
+    }
+
+    // Sets the side to move (and the result) of a position whose pieces are placed. Returns false
+    // if the position is illegal.
+    private boolean setTurn(int side) {
+        turn = side;
+        if (turn == BLACK) {
+            key ^= Zobrist.SIDE_TO_MOVE;
+        }
+        int notTurn = turn ^ 1;
+
+        // Check if a legal position (same rules as BreakthroughState):
+        //  - side not-to-move must have at least one piece.
+        //  - maximum one piece on backrank, and not for side-to-move.
+        int cntOnBackrankWhite = 0;
+        int cntOnBackrankBlack = 0;
+        for (int c = 0; c < cols; ++c) {
+            if (testBit(pieces[BLACK], c)) {
+                cntOnBackrankBlack++;
+            }
+            if (testBit(pieces[WHITE], (rows - 1) * cols + c)) {
+                cntOnBackrankWhite++;
+            }
+        }
+        int usOnBackrank   = (turn == WHITE ? cntOnBackrankWhite : cntOnBackrankBlack);
+        int themOnBackrank = (turn == WHITE ? cntOnBackrankBlack : cntOnBackrankWhite);
+        if (countPces[notTurn] == 0 || usOnBackrank != 0 || themOnBackrank > 1) {
+            return false;
+        }
+        if (themOnBackrank == 1 || countPces[turn] == 0) {
+            result = Result.Loss;
+        }
+        return true;
+    }
+
+    public int getEncodedSize() {
+        return PositionCodec.getEncodedSize(rows, cols);
+    }
+
+    // The encoding numbers the squares of a rank from the last file, see PositionCodec.
+    public void encode(byte[] buffer, int offset) {
+        int bytes = PositionCodec.bitsetBytes(rows * cols);
+        for (int i = offset; i < offset + 2 * bytes; i++) {
+            buffer[i] = 0;
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int square = r * cols + c;
+                if (testBit(pieces[WHITE], square)) {
+                    PositionCodec.setBit(buffer, offset, r * cols + cols - 1 - c);
+                } else if (testBit(pieces[BLACK], square)) {
+                    PositionCodec.setBit(buffer, offset + bytes, r * cols + cols - 1 - c);
+                }
+            }
+        }
+        buffer[offset + 2 * bytes] = (byte) turn;
+    }
+
+    public boolean decode(byte[] buffer, int offset) {
+        int bytes = PositionCodec.bitsetBytes(rows * cols);
+        empty();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                boolean white = PositionCodec.testBit(buffer, offset, r * cols + cols - 1 - c);
+                boolean black = PositionCodec.testBit(buffer, offset + bytes, r * cols + cols - 1 - c);
+                if (white && black) {
+                    reset();
+                    return false;
+                }
+                if (white) {
+                    put(WHITE, r * cols + c);
+                } else if (black) {
+                    put(BLACK, r * cols + c);
+                }
+            }
+        }
+        if (!setTurn(buffer[offset + 2 * bytes] == 0 ? WHITE : BLACK)) {
+            reset();
+            return false;
+        }
+        return true;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder(rows * cols + 2);
+        for (int r = rows - 1; r >= 0; --r) {
+            for (int c = 0; c < cols; ++c) {
+                sb.append(squareChar(r * cols + c));
+            }
+        }
+        sb.append(' ');
+        sb.append(turn == WHITE ? '0' : '1');
+        return sb.toString();
+    }
+
+    public void display() {
+        for (int r = rows - 1; r >= 0; --r) {
+            System.out.printf("%3d ", r + 1);
+            for (int c = 0; c < cols; ++c) {
+                System.out.print(squareChar(r * cols + c));
+            }
+            System.out.println();
+        }
+        System.out.print("    ");
+        for (int c = 0; c < cols; ++c) {
+            System.out.print((char) ('a' + c));
+        }
+        System.out.println();
+        System.out.println(turn == WHITE ? " White" : " Black");
+        System.out.println(" Pieces: " + countPces[WHITE] + " " + countPces[BLACK]);
+        System.out.println(" Terminal: " + isTerminal());
+        System.out.println(" Result: " + getResult());
+        System.out.println(" Evaluation: " + getEvaluation());
+        System.out.println(" FEN-str: " + toString());
+        System.out.print(" Moves:");
+        for (Move move : getActions(null)) {
+            System.out.print(' ');
+            System.out.print(move.toStr());
+        }
+        System.out.println();
+    }
+
+    private char squareChar(int square) {
+        if (testBit(pieces[WHITE], square)) return 'w';
+        if (testBit(pieces[BLACK], square)) return 'b';
+        return '.';
+    }
+
+    public State copy() {
+        return new MultiWordState(this);
+    }
+
+    public void copyInto(State target) {
+        MultiWordState other = (MultiWordState) target;
+        assert other.rows == rows && other.cols == cols;
+        System.arraycopy(pieces[WHITE], 0, other.pieces[WHITE], 0, words);
+        System.arraycopy(pieces[BLACK], 0, other.pieces[BLACK], 0, words);
+        other.countPces[WHITE] = countPces[WHITE];
+        other.countPces[BLACK] = countPces[BLACK];
+        other.turn   = turn;
+        other.result = result;
+        other.key    = key;
+    }
+
+    // Snapshot: the white and the black bitboard words, the hash key and the side to move and result.
+    public int getSnapshotSize() {
+        return 2 * words + 2;
+    }
+
+    public void snapshot(long[] buffer, int offset) {
+        System.arraycopy(pieces[WHITE], 0, buffer, offset, words);
+        System.arraycopy(pieces[BLACK], 0, buffer, offset + words, words);
+        buffer[offset + 2 * words]     = key;
+        buffer[offset + 2 * words + 1] = turn | (result.ordinal() << 1);
+    }
+
+    public void restore(long[] buffer, int offset) {
+        System.arraycopy(buffer, offset, pieces[WHITE], 0, words);
+        System.arraycopy(buffer, offset + words, pieces[BLACK], 0, words);
+        countPces[WHITE] = countPces[BLACK] = 0;
+        for (int i = 0; i < words; i++) {
+            countPces[WHITE] += Long.bitCount(pieces[WHITE][i]);
+            countPces[BLACK] += Long.bitCount(pieces[BLACK][i]);
+        }
+        key    = buffer[offset + 2 * words];
+        turn   = (int) buffer[offset + 2 * words + 1] & 1;
+        result = Result.of((int) (buffer[offset + 2 * words + 1] >>> 1));
+    }
+
+    public Move isLegalMove(String strMove) {
+        for (Move move : getActions(null)) {
+            if (move.toStr().equals(strMove)) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    public int getEvaluation() {
+        if (isTerminal()) {
+            return result == Result.Win ? State.WIN_VALUE : State.LOSS_VALUE;
+        }
+        int value = countPces[WHITE] - countPces[BLACK];
+        return (turn == WHITE ? value : -value);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Bit helpers
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static void setBit(long[] bb, int square) {
+        bb[square >>> 6] |= 1L << square;
+    }
+
+    private static void clearBit(long[] bb, int square) {
+        bb[square >>> 6] &= ~(1L << square);
+    }
+
+    private static boolean testBit(long[] bb, int square) {
+        return (bb[square >>> 6] & (1L << square)) != 0;
+    }
+
+}
@@ -0,0 +1,145 @@
+package breakthrough;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * OffHeapMCTSTree
+ *
+ * An MCTSTree stored off the heap, in a direct ByteBuffer of fixed-size node records, so even
+ * a tree of many millions of nodes is a single object to the garbage collector. A buffer holds
+ * at most 2 GB, i.e. 64M nodes. The buffer is allocated once, at the memory limit, as growing
+ * it would hold the old and the new buffer at once, beyond the limit.
+ */
+public class OffHeapMCTSTree extends MCTSTree {
+
+    // Constants
+    public static final int NODE_BYTES = 32;
+
+    // Offsets within a node record.
+    private static final int VALUE       = 0;
+    private static final int VISITS      = 8;
+    private static final int PARENT      = 12;
+    private static final int FIRST_CHILD = 16;
+    private static final int MOVE        = 20;
+    private static final int CHILD_COUNT = 24;
+    private static final int EXPLORED    = 28; // An int, for atomic updates.
+
+    // Atomic access to the (aligned) ints and longs of a record, for concurrent searches.
+    private static final VarHandle INT  = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private ByteBuffer nodes = ByteBuffer.allocateDirect(0);
+
+    public OffHeapMCTSTree(long memoryLimit) {
+        setMemoryLimit(memoryLimit);
+    }
+
+    public int getVisits(int node) {
+        return nodes.getInt(node * NODE_BYTES + VISITS);
+    }
+
+    public long getValue(int node) {
+        return nodes.getLong(node * NODE_BYTES + VALUE);
+    }
+
+    public int getFirstChild(int node) {
+        return nodes.getInt(node * NODE_BYTES + FIRST_CHILD);
+    }
+
+    public int getChildCount(int node) {
+        return nodes.getShort(node * NODE_BYTES + CHILD_COUNT);
+    }
+
+    protected int getParent(int node) {
+        return nodes.getInt(node * NODE_BYTES + PARENT);
+    }
+
+    protected int getExplored(int node) {
+        return nodes.getInt(node * NODE_BYTES + EXPLORED);
+    }
+
+    protected int getEncodedMove(int node) {
+        return nodes.getInt(node * NODE_BYTES + MOVE);
+    }
+
+    protected void setVisits(int node, int visits) {
+        nodes.putInt(node * NODE_BYTES + VISITS, visits);
+    }
+
+    protected void setValue(int node, long value) {
+        nodes.putLong(node * NODE_BYTES + VALUE, value);
+    }
+
+    protected void setParent(int node, int parent) {
+        nodes.putInt(node * NODE_BYTES + PARENT, parent);
+    }
+
+    protected void setFirstChild(int node, int firstChild) {
+        nodes.putInt(node * NODE_BYTES + FIRST_CHILD, firstChild);
+    }
+
+    protected void setChildCount(int node, int childCount) {
+        nodes.putShort(node * NODE_BYTES + CHILD_COUNT, (short) childCount);
+    }
+
+    protected void setExplored(int node, int explored) {
+        nodes.putInt(node * NODE_BYTES + EXPLORED, explored);
+    }
+
+    protected void setEncodedMove(int node, int move) {
+        nodes.putInt(node * NODE_BYTES + MOVE, move);
+    }
+
+    protected void addVisits(int node, int visits) {
+        INT.getAndAdd(nodes, node * NODE_BYTES + VISITS, visits);
+    }
+
+    protected void addValue(int node, long value) {
+        LONG.getAndAdd(nodes, node * NODE_BYTES + VALUE, value);
+    }
+
+    protected int getAndIncrementExplored(int node) {
+        return (int) INT.getAndAdd(nodes, node * NODE_BYTES + EXPLORED, 1);
+    }
+
+    protected int getFirstChildAcquire(int node) {
+        return (int) INT.getAcquire(nodes, node * NODE_BYTES + FIRST_CHILD);
+    }
+
+    protected void setFirstChildRelease(int node, int firstChild) {
+        INT.setRelease(nodes, node * NODE_BYTES + FIRST_CHILD, firstChild);
+    }
+
+    protected boolean casFirstChild(int node, int expected, int firstChild) {
+        return INT.compareAndSet(nodes, node * NODE_BYTES + FIRST_CHILD, expected, firstChild);
+    }
+
+    public int getNodeBytes() {
+        return NODE_BYTES;
+    }
+
+    public int getCapacity() {
+        return nodes.capacity() / NODE_BYTES;
+    }
+
+    protected int getMaxCapacity() {
+        return Integer.MAX_VALUE / NODE_BYTES;
+    }
+
+    protected int getInitialCapacity(long maxNodes) {
+        return (int) maxNodes;
+    }
+
+    // Only setMemoryLimit() resizes, and it discards the tree: the old buffer is dropped before
+    // the new one is allocated, so it can be freed first.
+    protected void resize(int capacity) {
+        if (capacity != getCapacity()) {
+            nodes = null;
+            nodes = ByteBuffer.allocateDirect(capacity * NODE_BYTES).order(ByteOrder.nativeOrder());
+        }
+    }
+
+}
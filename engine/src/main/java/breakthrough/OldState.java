@@ -1,3 +1,5 @@
+package breakthrough;
+
 import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -63,6 +65,16 @@ public class OldState implements State {
         public void clear() {
             counter[WHITE] = 0;
             counter[BLACK] = 0;
+            iteratorIndex[WHITE] = 0;
+            iteratorIndex[BLACK] = 0;
+        }
+
+        public void copyFrom(PieceList other) {
+            for (int color = WHITE; color <= BLACK; color++) {
+                counter[color] = other.counter[color];
+                iteratorIndex[color] = 0;
+                System.arraycopy(other.squares[color], 0, squares[color], 0, other.counter[color]);
+            }
         }
 
         public int getNext(int color) {
@@ -111,6 +123,15 @@ public class OldState implements State {
     public static final int NO_OF_FILES = 15; // 12 x 15
     public static final int NO_OF_SQUARES = NO_OF_RANKS * NO_OF_FILES; // 180
 
+    // Maps a square of the 12x15 board to the bit index used by DiscoveryState (and its Zobrist keys).
+    private static final int[] BIT_INDEX = new int[NO_OF_SQUARES];
+
+    static {
+        for (int a = 0; a < SQUARES_64.length; a++) {
+            BIT_INDEX[SQUARES_64[a]] = (a / 8) * 8 + (7 - a % 8);
+        }
+    }
+
     // Borders
     public static final int UPPER_BORDER_SIZE = 2;
     public static final int LOWER_BORDER_SIZE = 2;
@@ -129,6 +150,24 @@ public class OldState implements State {
     public static final int N = +15; public static final int S = -15;
     public static final int E =  +1; public static final int W =  -1;
 
+    // Move deltas of each color, in generation order.
+    private static final int[][] DELTAS = { { NW, N, NE }, { SE, S, SW } };
+
+    // One shared Move per (from, color, delta, capture), see moveIndex(). Moves are compared by identity.
+    private static final Move[] MOVES = new Move[NO_OF_SQUARES * NO_OF_COLORS * 3 * 2];
+
+    static {
+        for (int from : SQUARES_64) {
+            for (int color = WHITE; color <= BLACK; color++) {
+                for (int d = 0; d < 3; d++) {
+                    int to = from + DELTAS[color][d];
+                    MOVES[moveIndex(from, color, d)]     = new Move(from, -1, to, -1, false);
+                    MOVES[moveIndex(from, color, d) + 1] = new Move(from, -1, to, -1, true);
+                }
+            }
+        }
+    }
+
     // Node types
     public static final int SCORE_ALL = 0;
     public static final int SCORE_CUT = 1;
@@ -170,23 +209,31 @@ public class OldState implements State {
         // Initializes the piece-list.
         pieces = new PieceList(16);
 
-        // Setup the initial FEN.
+        // Setup the initial FEN (also generates the DiscoveryZobrist key for the board).
         setup(fen);
+    }
 
-        // Generate a DiscoveryZobrist key for the board.
-        // key = DiscoveryZobrist.getZobristKey(this);
-        System.out.println(key);
+    private OldState(OldState other) {
+        squares = other.squares.clone();
+        indices = other.indices.clone();
+        pieces = new PieceList(16);
+        pieces.copyFrom(other.pieces);
+        sideToMove = other.sideToMove;
+        key = other.key;
+        result = other.result;
     }
 
     @Override
     public ArrayList<Move> getActions(Move first) {
-        ArrayList<Move> moves = new ArrayList<Move>();
+        ArrayList<Move> moves = new ArrayList<Move>(3 * pieces.counter[sideToMove]);
 
         int from;
         int otherSide = oppColor(sideToMove);
+        int[] deltas = DELTAS[sideToMove];
+        boolean hasFirst = false;
         while ((from = pieces.getNext(sideToMove)) != Square.NONE) {
-            int[] deltas = (sideToMove == WHITE ? new int[]{NW, N, NE} : new int[]{SE, S, SW});
-            for (int inc : deltas) {
+            for (int d = 0; d < 3; d++) {
+                int inc = deltas[d];
                 int to = from + inc;
                 boolean isCapture;
                 if (Square.isEmpty(squares[to])) {
@@ -196,26 +243,22 @@ public class OldState implements State {
                 } else {
                     continue;
                 }
-                Move firstMoveBackup = null;
-                Move move = new Move(from, -1, to, -1, isCapture);
+                Move move = MOVES[moveIndex(from, sideToMove, d) + (isCapture ? 1 : 0)];
 
                 // Orders the moves in PV-move, captures and non-captures.
-                if (first != null && move.equals(first)) {
-                    assert firstMoveBackup == null;
-                    firstMoveBackup = new Move(from, -1, to, -1, isCapture);
+                if (move == first) {
+                    hasFirst = true;
+                } else if (isCapture) {
+                    moves.add(0, move);
                 } else {
-                    if (isCapture) {
-                        moves.add(0, move);
-                    } else {
-                        moves.add(move);
-                    }
-                }
-                // Prepends the PV move.
-                if (firstMoveBackup != null) {
-                    moves.add(0, firstMoveBackup);
+                    moves.add(move);
                 }
             }
         }
+        // Prepends the PV move.
+        if (hasFirst) {
+            moves.add(0, first);
+        }
 
         return moves;
     }
@@ -370,6 +413,122 @@ public class OldState implements State {
         return value;
     }
 
+    @Override
+    public long getHashKey() {
+        return key;
+    }
+
+    @Override
+    public int getRows() {
+        return 8;
+    }
+
+    @Override
+    public int getCols() {
+        return 8;
+    }
+
+    @Override
+    public State copy() {
+        return new OldState(this);
+    }
+
+    @Override
+    public void copyInto(State target) {
+        OldState other = (OldState) target;
+        System.arraycopy(squares, 0, other.squares, 0, NO_OF_SQUARES);
+        System.arraycopy(indices, 0, other.indices, 0, NO_OF_SQUARES);
+        other.pieces.copyFrom(pieces);
+        other.sideToMove = sideToMove;
+        other.key = key;
+        other.result = result;
+    }
+
+    // Snapshot: the white and black pieces as DiscoveryState bitboards, the hash key and the
+    // side to move and result.
+    @Override
+    public int getSnapshotSize() {
+        return 4;
+    }
+
+    @Override
+    public void snapshot(long[] buffer, int offset) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            long bitboard = 0L;
+            for (int i = 0; i < pieces.counter[color]; i++) {
+                bitboard |= 1L << BIT_INDEX[pieces.get(color, i)];
+            }
+            buffer[offset + color] = bitboard;
+        }
+        buffer[offset + 2] = key;
+        buffer[offset + 3] = sideToMove | (result.ordinal() << 1);
+    }
+
+    @Override
+    public void restore(long[] buffer, int offset) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int i = 0; i < pieces.counter[color]; i++) {
+                squares[pieces.get(color, i)] = Square.EMPTY;
+            }
+        }
+        pieces.clear();
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (long bitboard = buffer[offset + color]; bitboard != 0; bitboard &= bitboard - 1) {
+                // BIT_INDEX flips the file, which is its own inverse.
+                fillSquare(SQUARES_64[Long.numberOfTrailingZeros(bitboard) ^ 7], color, false);
+            }
+        }
+        key = buffer[offset + 2];
+        sideToMove = (int) buffer[offset + 3] & 1;
+        result = Result.of((int) (buffer[offset + 3] >>> 1));
+    }
+
+    @Override
+    public int getEncodedSize() {
+        return 2 * 8 + 1;
+    }
+
+    @Override
+    public void encode(byte[] buffer, int offset) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            long bitboard = 0L;
+            for (int i = 0; i < pieces.counter[color]; i++) {
+                bitboard |= 1L << BIT_INDEX[pieces.get(color, i)];
+            }
+            PositionCodec.putBits(buffer, offset + 8 * color, bitboard, 8);
+        }
+        buffer[offset + 16] = (byte) sideToMove;
+    }
+
+    // Like setup(), does not check the position.
+    @Override
+    public boolean decode(byte[] buffer, int offset) {
+        long white = PositionCodec.getBits(buffer, offset, 8);
+        long black = PositionCodec.getBits(buffer, offset + 8, 8);
+        if ((white & black) != 0) {
+            reset();
+            return false;
+        }
+
+        // Resets the state.
+        empty();
+
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (long bitboard = (color == WHITE ? white : black); bitboard != 0; bitboard &= bitboard - 1) {
+                fillSquare(SQUARES_64[Long.numberOfTrailingZeros(bitboard) ^ 7], color, true);
+            }
+        }
+
+        sideToMove = buffer[offset + 16] == 0 ? WHITE : BLACK;
+        if (sideToMove == BLACK) {
+            key ^= DiscoveryZobrist.SIDE_TO_MOVE;
+        }
+
+        result = Result.Unknown;
+
+        return true;
+    }
+
     @Override
     public Move isLegalMove(String strMove) {
         return null;
@@ -393,7 +552,7 @@ public class OldState implements State {
             for (int i = 0; i < 8; i++) {
                 char c = fen.charAt(index);
                 if (c != '.') {
-                    fillSquare(square, c == 'w' ? Square.WHITE : Square.BLACK, false);
+                    fillSquare(square, c == 'w' ? Square.WHITE : Square.BLACK, true);
                 }
                 square++;
                 index++;
@@ -402,6 +561,9 @@ public class OldState implements State {
         index++;
 
         sideToMove = fen.charAt(index) == '0' ? WHITE : BLACK;
+        if (sideToMove == BLACK) {
+            key ^= DiscoveryZobrist.SIDE_TO_MOVE;
+        }
 
         result = Result.Unknown;
 
@@ -414,7 +576,7 @@ public class OldState implements State {
 
         if (rehash) {
             // Adds this piece on this square to the hash-key:
-            key ^= DiscoveryZobrist.PIECES[color][square];
+            key ^= DiscoveryZobrist.PIECES[color][BIT_INDEX[square]];
         }
 
         // Updates the piece list.
@@ -432,7 +594,7 @@ public class OldState implements State {
         // Retracts the hashing.
         if (rehash) {
             // Undoes this piece on this square from the hash-key:
-            key ^= DiscoveryZobrist.PIECES[color][square];
+            key ^= DiscoveryZobrist.PIECES[color][BIT_INDEX[square]];
         }
 
         // Updates the piece-list.
@@ -452,10 +614,11 @@ public class OldState implements State {
             squares[SQUARES_64[a]] = Square.EMPTY;
         }
 
-        // Initializes the piece-list.
-        pieces = new PieceList(16);
+        // Clears the piece-list.
+        pieces.clear();
 
         sideToMove = 0;
+        key = 0L;
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -466,6 +629,16 @@ public class OldState implements State {
         return color ^ 1;
     }
 
+    // Index of the non-capture in MOVES, the capture follows it.
+    private static int moveIndex(int from, int color, int d) {
+        return ((from * NO_OF_COLORS + color) * 3 + d) * 2;
+    }
+
+    // Converts a move of this state (12x15 squares in from_col/to_col) to the DiscoveryMove encoding.
+    public static int toDiscoveryMove(Move move) {
+        return DiscoveryMove.createMove(BIT_INDEX[move.from_col], BIT_INDEX[move.to_col], move.capture);
+    }
+
 }
 
 class Square {
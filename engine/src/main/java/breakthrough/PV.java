@@ -1,3 +1,5 @@
+package breakthrough;
+
 /**
  * PV
  *
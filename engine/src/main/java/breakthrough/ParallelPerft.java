@@ -0,0 +1,93 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ParallelPerft
+ *
+ * Perft for DiscoveryState on a fork/join pool. The work is always split at the root; the
+ * subtrees of the root moves are split once more (second ply) when they are deep enough and
+ * the worker does not already have tasks queued up for others to steal. Every task searches
+ * its own copy of the bitboards.
+ */
+public class ParallelPerft {
+
+    // Constants
+    private static final int MIN_SPLIT_DEPTH   = 5; // Minimum remaining depth to split the second ply.
+    private static final int MAX_SURPLUS_TASKS = 2; // Split only if fewer tasks are waiting to be stolen.
+
+    // Member variables
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<String, LongAdder> workerNodes;
+
+    public ParallelPerft(int threads) {
+        pool        = new ForkJoinPool(threads);
+        workerNodes = new ConcurrentHashMap<String, LongAdder>();
+    }
+
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    public long perft(DiscoveryState state, int depth) {
+        workerNodes.clear();
+        return pool.invoke(new PerftTask(new DiscoveryState(state), depth, 0));
+    }
+
+    // Leaf nodes counted by every worker thread in the last perft() call.
+    public Map<String, Long> getWorkerNodes() {
+        Map<String, Long> nodes = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : workerNodes.entrySet()) {
+            nodes.put(entry.getKey(), entry.getValue().sum());
+        }
+        return nodes;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private class PerftTask extends RecursiveTask<Long> {
+
+        private final DiscoveryState state;
+        private final int depth;
+        private final int ply;
+
+        PerftTask(DiscoveryState state, int depth, int ply) {
+            this.state = state;
+            this.depth = depth;
+            this.ply   = ply;
+        }
+
+        @Override
+        protected Long compute() {
+            boolean split = ply == 0
+                    || (ply == 1 && depth >= MIN_SPLIT_DEPTH && getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS);
+
+            if (!split || depth <= 1 || state.isTerminal()) {
+                long nodes = Perft.perft(state, depth);
+                workerNodes.computeIfAbsent(Thread.currentThread().getName(), k -> new LongAdder()).add(nodes);
+                return nodes;
+            }
+
+            ArrayList<PerftTask> tasks = new ArrayList<PerftTask>();
+            for (int move : state.getAllMoves(DiscoveryMove.MOVE_NONE)) {
+                DiscoveryState child = new DiscoveryState(state);
+                child.make(move);
+                tasks.add(new PerftTask(child, depth - 1, ply + 1));
+            }
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+}
@@ -0,0 +1,572 @@
+package breakthrough;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Perft
+ *
+ * Counts the leaf nodes of the game tree to a fixed depth, for any State implementation and
+ * for DiscoveryState. Terminal positions have no children. Moves at depth 1 are counted, not
+ * made (bulk counting).
+ *
+ * Usage: Perft [-s breakthrough|discovery|old|multiword|small] [-b <rows>x<cols>|all] [-d] [-v] [-t <threads>]
+ *              <depth> [<board> [<side>]]
+ *
+ *   -s : state representation to count with (default: discovery).
+ *   -b : board size (default: 8x8), for breakthrough, multiword and small (at most 64 squares).
+ *        With -v they are compared on that size, 'all' compares them on every supported size
+ *        from the start position.
+ *   -d : divide, print the count below every root move.
+ *   -t : count with DiscoveryState on <threads> fork/join workers (see ParallelPerft).
+ *   -v : verify that BreakthroughState, DiscoveryState and OldState agree on counts, moves,
+ *        positions and Zobrist keys.
+ */
+public class Perft {
+
+    // Constants
+    private static final String INITIAL_FEN =
+            "bbbbbbbbbbbbbbbb................................wwwwwwwwwwwwwwww 0";
+
+    public static void main(String[] args) {
+        String  representation = "discovery";
+        boolean divide = false;
+        boolean verify = false;
+        int     threads = 0;
+        int     rows   = 8;
+        int     cols   = 8;
+        boolean allSizes = false;
+        int     depth  = -1;
+        String  fen    = INITIAL_FEN;
+
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].equals("-s") && i + 1 < args.length) {
+                representation = args[++i];
+            } else if (args[i].equals("-b") && i + 1 < args.length) {
+                String size = args[++i];
+                if (size.equals("all")) {
+                    allSizes = true;
+                } else {
+                    try {
+                        rows = Integer.parseInt(size.substring(0, size.indexOf('x')));
+                        cols = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+                    } catch (RuntimeException e) {
+                        usage();
+                    }
+                }
+            } else if (args[i].equals("-d")) {
+                divide = true;
+            } else if (args[i].equals("-v")) {
+                verify = true;
+            } else if (args[i].equals("-t") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    usage();
+                }
+            } else {
+                usage();
+            }
+        }
+        if (i < args.length) {
+            try {
+                depth = Integer.parseInt(args[i++]);
+            } catch (NumberFormatException e) {
+                usage();
+            }
+        }
+        boolean customFen = i < args.length;
+        if (customFen) {
+            fen = args[i++] + " " + (i < args.length ? args[i++] : "");
+        }
+        if (depth < 0) {
+            usage();
+        }
+
+        if (verify && allSizes) {
+            boolean ok = true;
+            for (int r = MultiWordState.MIN_ROWS; r <= MultiWordState.MAX_ROWS; r++) {
+                for (int c = MultiWordState.MIN_COLS; c <= MultiWordState.MAX_COLS; c++) {
+                    ok &= verify(r, c, null, depth);
+                }
+            }
+            System.out.println(ok ? "OK" : "FAILED");
+            System.exit(ok ? 0 : 1);
+        }
+        if (verify && (rows != 8 || cols != 8 || representation.equals("multiword")
+                || representation.equals("small"))) {
+            System.exit(verify(rows, cols, customFen ? fen : null, depth) ? 0 : 1);
+        }
+        if (verify) {
+            System.exit(verify(fen, depth) ? 0 : 1);
+        }
+        if (!customFen && (rows != 8 || cols != 8)) {
+            fen = null;
+        }
+
+        if (threads > 0) {
+            if (!representation.equals("discovery") || divide) {
+                usage();
+            }
+            DiscoveryState state = new DiscoveryState();
+            if (!state.setup(fen)) {
+                System.out.println("> ILLEGAL POSITION: " + fen);
+                System.exit(1);
+            }
+            ParallelPerft perft = new ParallelPerft(threads);
+            run(perft, state, depth);
+            perft.shutdown();
+        } else if (representation.equals("discovery")) {
+            DiscoveryState state = new DiscoveryState();
+            if (!state.setup(fen)) {
+                System.out.println("> ILLEGAL POSITION: " + fen);
+                System.exit(1);
+            }
+            if (divide) divide(state, depth); else run(state, depth);
+        } else if (representation.equals("small") && !divide) {
+            if (rows * cols > BoardGeometry.MAX_SQUARES) {
+                usage();
+            }
+            SmallBoardState state = new SmallBoardState(rows, cols);
+            if (fen != null && !state.setup(fen)) {
+                System.out.println("> ILLEGAL POSITION: " + fen);
+                System.exit(1);
+            }
+            run(state, depth);
+        } else {
+            State state;
+            if (representation.equals("breakthrough")) {
+                state = new BreakthroughState(rows, cols);
+            } else if (representation.equals("multiword")) {
+                state = new MultiWordState(rows, cols);
+            } else if (representation.equals("small") && rows * cols <= BoardGeometry.MAX_SQUARES) {
+                state = new SmallBoardState(rows, cols);
+            } else if (representation.equals("old")) {
+                state = new OldState();
+            } else {
+                usage();
+                return;
+            }
+            if (fen != null && !state.setup(fen)) {
+                System.out.println("> ILLEGAL POSITION: " + fen);
+                System.exit(1);
+            }
+            if (divide) divide(state, depth); else run(state, depth);
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: Perft [-s breakthrough|discovery|old|multiword|small] [-b <rows>x<cols>|all] [-d] [-v]"
+                + " [-t <threads>] <depth> [<board> [<side>]]");
+        System.exit(1);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Counting
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static long perft(State state, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        if (state.isTerminal()) {
+            return 0;
+        }
+
+        ArrayList<Move> moves = state.getActions(null);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (Move move : moves) {
+            state.make(move);
+            nodes += perft(state, depth - 1);
+            state.retract(move);
+        }
+        return nodes;
+    }
+
+    public static long perft(DiscoveryState state, int depth) {
+        return perft(state, depth, new int[Math.max(depth, 1) * DiscoveryState.MAX_MOVES], 0);
+    }
+
+    private static long perft(DiscoveryState state, int depth, int[] moves, int offset) {
+        if (depth <= 0) {
+            return 1;
+        }
+        if (state.isTerminal()) {
+            return 0;
+        }
+        if (depth == 1) {
+            return state.countMoves();
+        }
+
+        long nodes = 0;
+        int count = state.getAllMoves(moves, offset, DiscoveryMove.MOVE_NONE);
+        for (int i = offset; i < offset + count; i++) {
+            state.make(moves[i]);
+            nodes += perft(state, depth - 1, moves, offset + count);
+            state.retract(moves[i]);
+        }
+        return nodes;
+    }
+
+    public static long perft(SmallBoardState state, int depth) {
+        return perft(state, depth, new int[Math.max(depth, 1) * DiscoveryState.MAX_MOVES], 0);
+    }
+
+    private static long perft(SmallBoardState state, int depth, int[] moves, int offset) {
+        if (depth <= 0) {
+            return 1;
+        }
+        if (state.isTerminal()) {
+            return 0;
+        }
+        if (depth == 1) {
+            return state.countMoves();
+        }
+
+        long nodes = 0;
+        int count = state.getAllMoves(moves, offset, DiscoveryMove.MOVE_NONE);
+        for (int i = offset; i < offset + count; i++) {
+            state.make(moves[i]);
+            nodes += perft(state, depth - 1, moves, offset + count);
+            state.retract(moves[i]);
+        }
+        return nodes;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Reporting
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static long run(State state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = perft(state, depth);
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        return nodes;
+    }
+
+    public static long run(DiscoveryState state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = perft(state, depth);
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        return nodes;
+    }
+
+    public static long run(SmallBoardState state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = perft(state, depth);
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        return nodes;
+    }
+
+    public static long run(ParallelPerft perft, DiscoveryState state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = perft.perft(state, depth);
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        for (Map.Entry<String, Long> entry : perft.getWorkerNodes().entrySet()) {
+            System.out.printf("  %s: %d nodes (%.1f%%)%n",
+                    entry.getKey(), entry.getValue(), 100.0 * entry.getValue() / Math.max(nodes, 1));
+        }
+        return nodes;
+    }
+
+    public static long divide(State state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = 0;
+        if (depth > 0 && !state.isTerminal()) {
+            for (Move move : state.getActions(null)) {
+                state.make(move);
+                long count = perft(state, depth - 1);
+                state.retract(move);
+                System.out.printf("%s: %d%n", moveToStr(state, move), count);
+                nodes += count;
+            }
+        }
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        return nodes;
+    }
+
+    public static long divide(DiscoveryState state, int depth) {
+        long msec  = System.currentTimeMillis();
+        long nodes = 0;
+        if (depth > 0 && !state.isTerminal()) {
+            for (int move : state.getAllMoves(DiscoveryMove.MOVE_NONE)) {
+                state.make(move);
+                long count = perft(state, depth - 1);
+                state.retract(move);
+                System.out.printf("%s: %d%n", DiscoveryMove.stringify(move), count);
+                nodes += count;
+            }
+        }
+        report(depth, nodes, System.currentTimeMillis() - msec);
+        return nodes;
+    }
+
+    private static void report(int depth, long nodes, long msec) {
+        System.out.printf("depth %d: %d nodes, %d msec, %d nodes/sec%n",
+                depth, nodes, msec, nodes * 1000 / Math.max(msec, 1));
+    }
+
+    // OldState keeps 12x15 square indices in its moves, which Move.toStr() can not print.
+    private static String moveToStr(State state, Move move) {
+        if (state instanceof OldState) {
+            return DiscoveryMove.stringify(OldState.toDiscoveryMove(move));
+        }
+        return move.toStr();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Verification
+    ///////////////////////////////////////////////////////////////////////////
+
+    // Cross-checks BreakthroughState, DiscoveryState and OldState from the position 'fen': first
+    // the independent (timed) perft counts, then a lockstep walk of the tree that compares moves,
+    // positions, terminal status and Zobrist keys in every node. True if all agree.
+    public static boolean verify(String fen, int depth) {
+        BreakthroughState bs = new BreakthroughState(8, 8);
+        if (!bs.setup(fen)) {
+            System.out.println("> ILLEGAL POSITION: " + fen);
+            return false;
+        }
+        DiscoveryState ds = new DiscoveryState(fen);
+        OldState       os = new OldState(fen);
+
+        System.out.println("BreakthroughState:");
+        long bsNodes = run(bs, depth);
+        System.out.println("DiscoveryState:");
+        long dsNodes = run(ds, depth);
+        System.out.println("OldState:");
+        long osNodes = run(os, depth);
+        if (bsNodes != dsNodes || bsNodes != osNodes) {
+            System.out.println("> COUNT MISMATCH: " + bsNodes + " / " + dsNodes + " / " + osNodes);
+            return false;
+        }
+
+        boolean ok = verify(bs, ds, os, depth, "");
+        System.out.println(ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    private static boolean verify(BreakthroughState bs, DiscoveryState ds, OldState os, int depth, String path) {
+        String fen = bs.toString();
+        if (!fen.equals(ds.toString()) || !fen.equals(os.toString())) {
+            return mismatch("positions differ", path, bs, ds, os);
+        }
+        long key = DiscoveryZobrist.getZobristKey(fen);
+        if (bs.getHashKey() != key || ds.key != key || os.key != key) {
+            return mismatch("keys differ (" + key + " / " + bs.getHashKey() + " / " + ds.key + " / " + os.key + ")",
+                    path, bs, ds, os);
+        }
+        if (bs.isTerminal() != ds.isTerminal() || bs.isTerminal() != os.isTerminal()) {
+            return mismatch("terminal status differs", path, bs, ds, os);
+        }
+        if (depth <= 0 || bs.isTerminal()) {
+            return true;
+        }
+        if (!isCopyValid(bs) || !isCopyValid(ds) || !isCopyValid(os)) {
+            return mismatch("copies differ", path, bs, ds, os);
+        }
+        if (!Arrays.equals(encode(bs), encode(ds)) || !Arrays.equals(encode(bs), encode(os))) {
+            return mismatch("encodings differ", path, bs, ds, os);
+        }
+
+        ArrayList<Move>    bsMoves = bs.getActions(null);
+        ArrayList<Integer> dsMoves = ds.getAllMoves(DiscoveryMove.MOVE_NONE);
+        ArrayList<Move>    osMoves = os.getActions(null);
+
+        int[] bsEncoded = new int[bsMoves.size()];
+        for (int i = 0; i < bsEncoded.length; i++) {
+            bsEncoded[i] = DiscoveryMove.deserialize(bsMoves.get(i));
+        }
+        int[] dsEncoded = new int[dsMoves.size()];
+        for (int i = 0; i < dsEncoded.length; i++) {
+            dsEncoded[i] = dsMoves.get(i);
+        }
+        int[] osEncoded = new int[osMoves.size()];
+        for (int i = 0; i < osEncoded.length; i++) {
+            osEncoded[i] = OldState.toDiscoveryMove(osMoves.get(i));
+        }
+        int[] sorted = bsEncoded.clone();
+        Arrays.sort(sorted);
+        Arrays.sort(dsEncoded);
+        Arrays.sort(osEncoded);
+        if (!Arrays.equals(sorted, dsEncoded) || !Arrays.equals(sorted, osEncoded)) {
+            return mismatch("moves differ", path, bs, ds, os);
+        }
+
+        for (int i = 0; i < bsMoves.size(); i++) {
+            Move bsMove = bsMoves.get(i);
+            int  dsMove = bsEncoded[i];
+            Move osMove = null;
+            for (Move m : osMoves) {
+                if (OldState.toDiscoveryMove(m) == dsMove) {
+                    osMove = m;
+                    break;
+                }
+            }
+
+            bs.make(bsMove);
+            ds.make(dsMove);
+            os.make(osMove);
+            boolean ok = verify(bs, ds, os, depth - 1, path + " " + bsMove.toStr());
+            bs.retract(bsMove);
+            ds.retract(dsMove);
+            os.retract(osMove);
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean mismatch(String what, String path, BreakthroughState bs, DiscoveryState ds, OldState os) {
+        System.out.println("> MISMATCH, " + what + " after:" + path);
+        System.out.println("  BreakthroughState: " + bs);
+        System.out.println("  DiscoveryState   : " + ds);
+        System.out.println("  OldState         : " + os);
+        return false;
+    }
+
+    // Cross-checks BreakthroughState against MultiWordState (and SmallBoardState, if the board has
+    // at most 64 squares) on a rows x cols board, from the position 'fen' (or the start position
+    // if null): the perft counts, and in every node of a lockstep walk the moves, positions,
+    // terminal status and the incremental Zobrist keys, which must be equal.
+    public static boolean verify(int rows, int cols, String fen, int depth) {
+        BreakthroughState bs = new BreakthroughState(rows, cols);
+        MultiWordState    mw = new MultiWordState(rows, cols);
+        SmallBoardState   sb = rows * cols <= BoardGeometry.MAX_SQUARES ? new SmallBoardState(rows, cols) : null;
+        if (fen != null && (!bs.setup(fen) || !mw.setup(fen) || (sb != null && !sb.setup(fen)))) {
+            System.out.println("> ILLEGAL POSITION: " + fen);
+            return false;
+        }
+
+        long msec    = System.currentTimeMillis();
+        long bsNodes = perft(bs, depth);
+        long bsMsec  = System.currentTimeMillis() - msec;
+        msec         = System.currentTimeMillis();
+        long mwNodes = perft(mw, depth);
+        long mwMsec  = System.currentTimeMillis() - msec;
+
+        boolean ok = bsNodes == mwNodes && verify(bs, mw, depth, "");
+        if (sb == null) {
+            System.out.printf("%dx%d depth %d: %d / %d nodes, %d / %d msec %s%n",
+                    rows, cols, depth, bsNodes, mwNodes, bsMsec, mwMsec, ok ? "OK" : "FAILED");
+            return ok;
+        }
+        msec         = System.currentTimeMillis();
+        long sbNodes = perft(sb, depth);
+        long sbMsec  = System.currentTimeMillis() - msec;
+        ok = ok && bsNodes == sbNodes && verify(bs, sb, depth, "");
+        System.out.printf("%dx%d depth %d: %d / %d / %d nodes, %d / %d / %d msec %s%n",
+                rows, cols, depth, bsNodes, mwNodes, sbNodes, bsMsec, mwMsec, sbMsec, ok ? "OK" : "FAILED");
+        return ok;
+    }
+
+    private static boolean verify(BreakthroughState bs, State other, int depth, String path) {
+        if (!bs.toString().equals(other.toString()) || bs.isTerminal() != other.isTerminal()
+                || !isHashKeyValid(bs) || bs.getHashKey() != other.getHashKey()) {
+            System.out.println("> MISMATCH after:" + path);
+            System.out.println("  BreakthroughState: " + bs);
+            System.out.println("  " + pad(other.getClass().getSimpleName()) + ": " + other);
+            return false;
+        }
+        if (depth <= 0 || bs.isTerminal()) {
+            return true;
+        }
+        if (!isCopyValid(bs) || !isCopyValid(other)) {
+            System.out.println("> MISMATCH, copies differ after:" + path);
+            return false;
+        }
+        if (!Arrays.equals(encode(bs), encode(other))) {
+            System.out.println("> MISMATCH, encodings differ after:" + path);
+            return false;
+        }
+
+        ArrayList<Move> bsMoves = bs.getActions(null);
+        ArrayList<Move> otherMoves = other.getActions(null);
+        String[] bsStrings = new String[bsMoves.size()];
+        for (int i = 0; i < bsStrings.length; i++) {
+            bsStrings[i] = bsMoves.get(i).toStr();
+        }
+        String[] otherStrings = new String[otherMoves.size()];
+        HashMap<String, Move> otherByString = new HashMap<String, Move>();
+        for (int i = 0; i < otherStrings.length; i++) {
+            otherStrings[i] = otherMoves.get(i).toStr();
+            otherByString.put(otherStrings[i], otherMoves.get(i));
+        }
+        String[] sorted = bsStrings.clone();
+        Arrays.sort(sorted);
+        Arrays.sort(otherStrings);
+        if (!Arrays.equals(sorted, otherStrings)) {
+            System.out.println("> MISMATCH, moves differ after:" + path);
+            System.out.println("  BreakthroughState: " + Arrays.toString(sorted));
+            System.out.println("  " + pad(other.getClass().getSimpleName()) + ": " + Arrays.toString(otherStrings));
+            return false;
+        }
+
+        for (int i = 0; i < bsStrings.length; i++) {
+            Move bsMove = bsMoves.get(i);
+            Move otherMove = otherByString.get(bsStrings[i]);
+            bs.make(bsMove);
+            other.make(otherMove);
+            boolean ok = verify(bs, other, depth - 1, path + " " + bsStrings[i]);
+            bs.retract(bsMove);
+            other.retract(otherMove);
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHashKeyValid(State state) {
+        return state.getHashKey() == Zobrist.getZobristKey(state);
+    }
+
+    // Checks that copy(), copyInto(), and snapshot/restore and encode/decode round trips reproduce
+    // the state (in the interior nodes of the walks only, as it is slow).
+    private static boolean isCopyValid(State state) {
+        long[] buffer = new long[state.getSnapshotSize() + 1];
+        state.snapshot(buffer, 1);
+        byte[] encoded = new byte[state.getEncodedSize() + 1];
+        state.encode(encoded, 1);
+
+        State copy = state.copy();
+        State into = state.copy();
+        into.reset();
+        state.copyInto(into);
+        State restored = state.copy();
+        restored.reset();
+        restored.restore(buffer, 1);
+        State decoded = state.copy();
+        decoded.reset();
+        if (!decoded.decode(encoded, 1)) {
+            return false;
+        }
+
+        for (State other : new State[]{ copy, into, restored, decoded }) {
+            if (!state.toString().equals(other.toString()) || state.getResult() != other.getResult()
+                    || state.getEvaluation() != other.getEvaluation() || !isHashKeyValid(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encode(State state) {
+        byte[] encoded = new byte[state.getEncodedSize()];
+        state.encode(encoded, 0);
+        return encoded;
+    }
+
+    private static String pad(String name) {
+        return String.format("%-17s", name);
+    }
+
+}
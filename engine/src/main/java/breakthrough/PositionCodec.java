@@ -0,0 +1,215 @@
+package breakthrough;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * PositionCodec
+ *
+ * The binary position encoding shared by all State implementations (see State.encode()), and
+ * a codec that reads and writes it through ByteBuffers. On a rows x cols board with n squares,
+ * square s = rank * cols + (cols - 1 - file), as in DiscoveryState, so FEN character i is
+ * square n - 1 - i. A position is
+ *
+ *   (n + 7) / 8 bytes : the white pieces, bit s of byte s / 8 (little-endian bit order)
+ *   (n + 7) / 8 bytes : the black pieces
+ *   1 byte            : the side to move (0 white, 1 black)
+ *
+ * i.e. 17 bytes on the 8x8 board, whose bitsets are DiscoveryState's bitboards in little-endian
+ * byte order. A codec encodes through one scratch array, so reading and writing produce no
+ * garbage.
+ *
+ * Usage: PositionCodec -e <rows>x<cols> <fen file> <binary file>
+ *        PositionCodec -d <binary file> <fen file>
+ *
+ *   -e : encodes a file of FEN strings, one per line. The binary file starts with two bytes,
+ *        rows and cols, followed by the positions.
+ *   -d : decodes such a file back to FEN strings.
+ */
+public class PositionCodec {
+
+    // Member variables
+    private final State  state;     // Decodes into, or encodes from, this state.
+    private final byte[] scratch;
+
+    // Functions
+
+    // A codec for positions of the class and board size of 'state', which it uses as a scratch state.
+    public PositionCodec(State state) {
+        this.state   = state;
+        this.scratch = new byte[state.getEncodedSize()];
+    }
+
+    public int getEncodedSize() {
+        return scratch.length;
+    }
+
+    // Writes the position of 'position' (of the codec's class and board size) at the buffer's position.
+    public void write(State position, ByteBuffer buffer) {
+        position.encode(scratch, 0);
+        buffer.put(scratch);
+    }
+
+    // Reads a position from the buffer into 'position'. Returns false (and resets it) if illegal.
+    public boolean read(ByteBuffer buffer, State position) {
+        buffer.get(scratch);
+        return position.decode(scratch, 0);
+    }
+
+    // Reads a position from the buffer into the codec's state and returns it, or null if illegal.
+    public State read(ByteBuffer buffer) {
+        return read(buffer, state) ? state : null;
+    }
+
+    // Encoded size of a position on a rows x cols board.
+    public static int getEncodedSize(int rows, int cols) {
+        return 2 * bitsetBytes(rows * cols) + 1;
+    }
+
+    // Number of bytes of each bitset on a board with n squares.
+    public static int bitsetBytes(int squares) {
+        return (squares + 7) / 8;
+    }
+
+    // Copies the position of 'from' into 'to', of the same board size but possibly another State
+    // implementation.
+    public static void copy(State from, State to) {
+        if (from.getClass() == to.getClass()) {
+            from.copyInto(to);
+        } else {
+            byte[] buffer = new byte[from.getEncodedSize()];
+            from.encode(buffer, 0);
+            to.decode(buffer, 0);
+        }
+    }
+
+    // Writes the lowest 'bytes' bytes of 'bits' to buffer[offset...], lowest byte first.
+    public static void putBits(byte[] buffer, int offset, long bits, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            buffer[offset + i] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    // Reads 'bytes' bytes (at most 8) from buffer[offset...], lowest byte first.
+    public static long getBits(byte[] buffer, int offset, int bytes) {
+        long bits = 0L;
+        for (int i = 0; i < bytes; i++) {
+            bits |= (buffer[offset + i] & 0xFFL) << (8 * i);
+        }
+        return bits;
+    }
+
+    // Sets bit 'square' of the bitset at buffer[offset...].
+    public static void setBit(byte[] buffer, int offset, int square) {
+        buffer[offset + (square >>> 3)] |= (byte) (1 << (square & 7));
+    }
+
+    public static boolean testBit(byte[] buffer, int offset, int square) {
+        return (buffer[offset + (square >>> 3)] & (1 << (square & 7))) != 0;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Conversion of position files
+    ///////////////////////////////////////////////////////////////////////////
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 4 && args[0].equals("-e")) {
+            String[] size = args[1].split("x");
+            int rows, cols;
+            try {
+                rows = Integer.parseInt(size[0]);
+                cols = Integer.parseInt(size[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                usage();
+                return;
+            }
+            encodeFile(rows, cols, args[2], args[3]);
+        } else if (args.length == 3 && args[0].equals("-d")) {
+            decodeFile(args[1], args[2]);
+        } else {
+            usage();
+        }
+    }
+
+    private static void encodeFile(int rows, int cols, String fenFile, String binaryFile) throws IOException {
+        State           state  = newState(rows, cols);
+        PositionCodec   codec  = new PositionCodec(state);
+        ByteBuffer      buffer = ByteBuffer.allocate(codec.getEncodedSize());
+        long            count  = 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(fenFile));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)))) {
+            out.writeByte(rows);
+            out.writeByte(cols);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (!state.setup(line.trim())) {
+                    System.out.println("> ILLEGAL POSITION, SKIPPED: " + line);
+                    continue;
+                }
+                buffer.clear();
+                codec.write(state, buffer);
+                out.write(buffer.array(), 0, buffer.position());
+                count++;
+            }
+        }
+        System.out.println(count + " positions, " + codec.getEncodedSize() + " bytes each");
+    }
+
+    private static void decodeFile(String binaryFile, String fenFile) throws IOException {
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile)));
+             PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(fenFile)))) {
+            int           rows   = in.readUnsignedByte();
+            int           cols   = in.readUnsignedByte();
+            PositionCodec codec  = new PositionCodec(newState(rows, cols));
+            ByteBuffer    buffer = ByteBuffer.allocate(codec.getEncodedSize());
+            while (true) {
+                try {
+                    in.readFully(buffer.array());
+                } catch (EOFException e) {
+                    break;
+                }
+                buffer.clear();
+                State state = codec.read(buffer);
+                if (state == null) {
+                    System.out.println("> ILLEGAL POSITION, SKIPPED: #" + count);
+                    continue;
+                }
+                out.println(state);
+                count++;
+            }
+        }
+        System.out.println(count + " positions");
+    }
+
+    // The fastest representation of a rows x cols board.
+    private static State newState(int rows, int cols) {
+        if (rows == 8 && cols == 8) {
+            return new DiscoveryState();
+        }
+        if (rows * cols <= BoardGeometry.MAX_SQUARES) {
+            return new SmallBoardState(rows, cols);
+        }
+        return new MultiWordState(rows, cols);
+    }
+
+    private static void usage() {
+        System.out.println("Usage: PositionCodec -e <rows>x<cols> <fen file> <binary file>");
+        System.out.println("       PositionCodec -d <binary file> <fen file>");
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,171 @@
+package breakthrough;
+
+import java.util.Random;
+
+/**
+ * RandomPlayout
+ *
+ * Plays random games to the end on a pair of single-long bitboards, for boards of up to 64
+ * squares (laid out as in BoardGeometry). Every ply the destination sets of the three move
+ * directions are computed with shifts and masks, and a uniformly random legal move is picked
+ * by counting their bits and selecting the n-th one, so no move list is built. A game is over
+ * when a piece reaches its goal rank, the last piece of a side is captured or, as in
+ * AgentMCTS, the side to move has no move left (and loses).
+ */
+public class RandomPlayout {
+
+    // Colors
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Geometry
+    private final BoardGeometry geometry;
+    private final long board;
+    private final long notFileA;
+    private final long notLastFile;
+    private final long whiteGoal;
+    private final long blackGoal;
+    private final int  shiftForward;
+    private final int  shiftFileA;
+    private final int  shiftLastFile;
+
+    private final byte[] encoded;
+    private long seed;          // xorshift64* state.
+
+    // The playout engine for the board of 'state', or null if it has more than 64 squares.
+    public static RandomPlayout of(State state, Random random) {
+        if (state.getRows() * state.getCols() > BoardGeometry.MAX_SQUARES) {
+            return null;
+        }
+        return new RandomPlayout(BoardGeometry.of(state.getRows(), state.getCols()), random.nextLong());
+    }
+
+    public RandomPlayout(BoardGeometry geometry, long seed) {
+        this.geometry = geometry;
+        board         = geometry.board;
+        notFileA      = geometry.notFileA;
+        notLastFile   = geometry.notLastFile;
+        whiteGoal     = geometry.goal[WHITE];
+        blackGoal     = geometry.goal[BLACK];
+        shiftForward  = geometry.shiftForward;
+        shiftFileA    = geometry.shiftFileA;
+        shiftLastFile = geometry.shiftLastFile;
+        encoded       = new byte[PositionCodec.getEncodedSize(geometry.rows, geometry.cols)];
+        this.seed     = (seed == 0 ? 1 : seed);
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    // True if this engine plays on the board of 'state'.
+    public boolean fits(State state) {
+        return state.getRows() == geometry.rows && state.getCols() == geometry.cols;
+    }
+
+    // Plays a random game from 'state' (which is not changed) and returns the winner.
+    public int play(State state) {
+        state.encode(encoded, 0);
+        int bytes = PositionCodec.bitsetBytes(geometry.squares);
+        return play(PositionCodec.getBits(encoded, 0, bytes),
+                    PositionCodec.getBits(encoded, bytes, bytes),
+                    encoded[2 * bytes]);
+    }
+
+    // Plays a random game from the position (white, black, side to move) and returns the winner.
+    public int play(long white, long black, int sideToMove) {
+        // Already over?
+        if ((white & whiteGoal) != 0 || black == 0) {
+            return WHITE;
+        }
+        if ((black & blackGoal) != 0 || white == 0) {
+            return BLACK;
+        }
+
+        while (true) {
+            long empty = board & ~(white | black);
+            if (sideToMove == WHITE) {
+                long forward  = (white << shiftForward) & empty;
+                long fileA    = ((white & notFileA) << shiftFileA) & ~white & board;
+                long lastFile = ((white & notLastFile) << shiftLastFile) & ~white & board;
+                int  countForward = Long.bitCount(forward);
+                int  countFileA   = Long.bitCount(fileA);
+                int  count        = countForward + countFileA + Long.bitCount(lastFile);
+                if (count == 0) {
+                    return BLACK;
+                }
+
+                // Picks the n-th move, in the order forward, towards file a, towards the last file.
+                int  n     = nextInt(count);
+                int  shift = shiftForward;
+                long moves = forward;
+                if (n >= countForward) {
+                    n -= countForward;
+                    shift = shiftFileA;
+                    moves = fileA;
+                    if (n >= countFileA) {
+                        n -= countFileA;
+                        shift = shiftLastFile;
+                        moves = lastFile;
+                    }
+                }
+                long to = select(moves, n);
+                white ^= (to >>> shift) | to;
+                black &= ~to;
+                if ((to & whiteGoal) != 0 || black == 0) {
+                    return WHITE;
+                }
+                sideToMove = BLACK;
+            } else {
+                long forward  = (black >>> shiftForward) & empty;
+                long fileA    = ((black & notFileA) >>> shiftLastFile) & ~black;
+                long lastFile = ((black & notLastFile) >>> shiftFileA) & ~black;
+                int  countForward = Long.bitCount(forward);
+                int  countFileA   = Long.bitCount(fileA);
+                int  count        = countForward + countFileA + Long.bitCount(lastFile);
+                if (count == 0) {
+                    return WHITE;
+                }
+
+                int  n     = nextInt(count);
+                int  shift = shiftForward;
+                long moves = forward;
+                if (n >= countForward) {
+                    n -= countForward;
+                    shift = shiftLastFile;
+                    moves = fileA;
+                    if (n >= countFileA) {
+                        n -= countFileA;
+                        shift = shiftFileA;
+                        moves = lastFile;
+                    }
+                }
+                long to = select(moves, n);
+                black ^= (to << shift) | to;
+                white &= ~to;
+                if ((to & blackGoal) != 0 || white == 0) {
+                    return BLACK;
+                }
+                sideToMove = WHITE;
+            }
+        }
+    }
+
+    // The n-th (from 0) lowest set bit of 'bits', as a bitboard.
+    private static long select(long bits, int n) {
+        for (; n > 0; n--) {
+            bits &= bits - 1;
+        }
+        return bits & -bits;
+    }
+
+    // A uniformly random int in [0, bound) (bound < 2^16), from xorshift64*.
+    private int nextInt(int bound) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        long r = (seed * 0x2545F4914F6CDD1DL) >>> 32;
+        return (int) ((r * bound) >>> 32);
+    }
+
+}
@@ -0,0 +1,235 @@
+package breakthrough;
+
+/**
+ * SearchBench
+ *
+ * Measures AgentDiscovery at a fixed time per position, for one or more thread counts: the
+ * depth the main thread completes and the nodes searched by all threads. The speedup is in time
+ * to depth: every thread count searches each position again to the depth the first one
+ * completed, and is timed. Every search starts with an empty transposition table.
+ *
+ * Usage: SearchBench [-m [-r | -l <playouts>]] [-t <threads>[,<threads>...]] <msec>
+ *        SearchBench -a [-t <threads>[,<threads>...]] <depth>
+ *
+ *   -a : measures AgentParallelAlphaBeta on BreakthroughState at a fixed depth instead (also
+ *        on 7x5 and 6x6 boards), and checks its root values against AgentAlphaBeta's.
+ *   -m : measures AgentMCTS instead, the simulations of all threads (from a new tree), and its
+ *        ratio to the simulations/sec of the first thread count.
+ *   -r : with -m, root-parallel (a tree per thread) instead of tree-parallel.
+ *   -l : with -m, leaf-parallel: the given playouts per leaf, over all threads.
+ *   -t : thread counts to compare (default: 1). Speedups are relative to the first.
+ */
+public class SearchBench {
+
+    // Constants
+    private static final String[] POSITIONS = {
+        "bbbbbbbbbbbbbbbb................................wwwwwwwwwwwwwwww 0",
+        "bbb.bbbbb.bbbbbb..b.b.............w.....w.........wwwwwwwwwwwwww 0",
+        ".bbb.bbb.bbbb.bb.bb..........w...w..w.....w......b..wwwwwwwww..w 0",
+        "b.bb...bbbb.b.bb...b......bb.b.......w...www...ww..ww..wwww..ww. 0",
+        "b..bb.bb.b.b..b..b...b...w.......b.....w......ww.wb...w.w.w.w... 0",
+        "..b...b.b...bb..bb.....b........b..wb...........w.www..ww.w....w 0",
+    };
+
+    public static void main(String[] args) {
+        String  threadList = "1";
+        long    msec = -1;
+        boolean mcts = false;
+        boolean alphaBeta = false;
+        AgentMCTS.Parallelism parallelism = AgentMCTS.Parallelism.Tree;
+        int     leafBatch = 1;
+
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].equals("-t") && i + 1 < args.length) {
+                threadList = args[++i];
+            } else if (args[i].equals("-m")) {
+                mcts = true;
+            } else if (args[i].equals("-a")) {
+                alphaBeta = true;
+            } else if (args[i].equals("-r")) {
+                parallelism = AgentMCTS.Parallelism.Root;
+            } else if (args[i].equals("-l") && i + 1 < args.length) {
+                parallelism = AgentMCTS.Parallelism.Leaf;
+                try {
+                    leafBatch = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    usage();
+                }
+            } else {
+                usage();
+            }
+        }
+        try {
+            msec = (i < args.length ? Long.parseLong(args[i]) : -1);
+        } catch (NumberFormatException e) {
+            usage();
+        }
+        if (msec <= 0) {
+            usage();
+        }
+
+        int[] values = null; // AgentAlphaBeta's, with -a.
+        int[] depths = null; // Completed by the first thread count, for the time to depth.
+        long   baseTime = 0;
+        double baseNps = 0;
+        for (String threadCount : threadList.split(",")) {
+            int threads;
+            try {
+                threads = Integer.parseInt(threadCount);
+            } catch (NumberFormatException e) {
+                usage();
+                return;
+            }
+
+            if (alphaBeta) {
+                if (values == null) {
+                    values = alphaBetaValues((int) msec);
+                }
+                baseNps = benchParallelAlphaBeta(threads, (int) msec, values, baseNps);
+                continue;
+            }
+            if (mcts) {
+                baseNps = benchMCTS(threads, parallelism, leafBatch, msec, baseNps);
+                continue;
+            }
+
+            long nodes = 0;
+            int  depth = 0;
+            boolean first = (depths == null);
+            if (first) {
+                depths = new int[POSITIONS.length];
+            }
+            for (int p = 0; p < POSITIONS.length; p++) {
+                AgentDiscovery agent = discoverySearch(threads, POSITIONS[p], 0, msec);
+                nodes += agent.getNodes();
+                depth += agent.getDepth();
+                if (first) {
+                    depths[p] = Math.max(1, agent.getDepth());
+                }
+            }
+
+            // Time to the depths of the first thread count.
+            long time = System.currentTimeMillis();
+            for (int p = 0; p < POSITIONS.length; p++) {
+                discoverySearch(threads, POSITIONS[p], depths[p], 0);
+            }
+            time = Math.max(1, System.currentTimeMillis() - time);
+
+            double nps = nodes * 1000.0 / (msec * POSITIONS.length);
+            if (baseNps == 0) {
+                baseNps  = nps;
+                baseTime = time;
+            }
+            System.out.printf("threads %2d: depth %.2f, %d nodes, %.0f nodes/sec (ratio %.2f), "
+                    + "%d ms to depth, speedup %.2f%n",
+                    threads, (double) depth / POSITIONS.length, nodes, nps, nps / baseNps,
+                    time, (double) baseTime / time);
+        }
+    }
+
+    // Searches 'fen' with AgentDiscovery to 'depth' or for 'msec' (0: no limit).
+    private static AgentDiscovery discoverySearch(int threads, String fen, int depth, long msec) {
+        AgentDiscovery agent = new AgentDiscovery(threads);
+        agent.setThinklimit(depth, 0, msec);
+        DiscoveryState state = new DiscoveryState(fen);
+        agent.playMove(state, new Game(state));
+        return agent;
+    }
+
+    // Measures AgentMCTS with 'threads' threads, and returns the simulations/sec of the first
+    // thread count measured ('baseSps', 0 if this is it).
+    private static double benchMCTS(int threads, AgentMCTS.Parallelism parallelism, int leafBatch,
+                                    long msec, double baseSps) {
+        long simulations = 0;
+        for (String fen : POSITIONS) {
+            AgentMCTS agent = new AgentMCTS();
+            agent.setParallelism(parallelism);
+            agent.setLeafBatch(leafBatch);
+            agent.setThreads(threads);
+            agent.setThinklimit(0, 0, msec);
+            DiscoveryState state = new DiscoveryState(fen);
+            agent.playMove(state, null);
+            simulations += agent.getSimulations();
+        }
+
+        double sps = simulations * 1000.0 / (msec * POSITIONS.length);
+        if (baseSps == 0) {
+            baseSps = sps;
+        }
+        System.out.printf("threads %2d: %d simulations, %.0f simulations/sec (ratio %.2f)%n",
+                threads, simulations, sps, sps / baseSps);
+        return baseSps;
+    }
+
+    // The positions of -a: POSITIONS, and the start positions of two smaller boards.
+    private static State[] alphaBetaPositions() {
+        State[] states = new State[POSITIONS.length + 2];
+        for (int i = 0; i < POSITIONS.length; i++) {
+            states[i] = new BreakthroughState(8, 8);
+            states[i].setup(POSITIONS[i]);
+        }
+        states[POSITIONS.length]     = new BreakthroughState(7, 5);
+        states[POSITIONS.length + 1] = new BreakthroughState(6, 6);
+        return states;
+    }
+
+    // The root values of AgentAlphaBeta at 'depth'.
+    private static int[] alphaBetaValues(int depth) {
+        State[] states = alphaBetaPositions();
+        int[] values = new int[states.length];
+        long msec = System.currentTimeMillis();
+        for (int i = 0; i < states.length; i++) {
+            AgentAlphaBeta agent = new AgentAlphaBeta();
+            agent.setThinklimit(depth, 0, 0);
+            agent.playMove(states[i], null);
+            values[i] = agent.getValue();
+        }
+        System.out.printf("AgentAlphaBeta: depth %d, %d ms%n", depth, System.currentTimeMillis() - msec);
+
+        // Warms the parallel search up, so the first thread count is not timed with the JIT.
+        AgentParallelAlphaBeta agent = new AgentParallelAlphaBeta(1);
+        agent.setThinklimit(depth, 0, 0);
+        for (State state : states) {
+            agent.playMove(state, null);
+        }
+        agent.shutdown();
+        return values;
+    }
+
+    // Measures AgentParallelAlphaBeta with 'threads' threads at 'depth', checks its values, and
+    // returns the searches/sec of the first thread count measured ('baseRate', 0 if this is it).
+    private static double benchParallelAlphaBeta(int threads, int depth, int[] values, double baseRate) {
+        State[] states = alphaBetaPositions();
+        long nodes = 0;
+        int  matches = 0;
+        // One agent, and pool, for all positions, started before the clock.
+        AgentParallelAlphaBeta agent = new AgentParallelAlphaBeta(threads);
+        agent.setThinklimit(depth, 0, 0);
+        long msec = System.currentTimeMillis();
+        for (int i = 0; i < states.length; i++) {
+            agent.playMove(states[i], null);
+            nodes += agent.getNodes();
+            if (agent.getValue() == values[i]) {
+                matches++;
+            }
+        }
+        msec = Math.max(1, System.currentTimeMillis() - msec);
+        agent.shutdown();
+
+        double rate = 1.0 / msec;
+        if (baseRate == 0) {
+            baseRate = rate;
+        }
+        System.out.printf("threads %2d: values %d/%d match, %d nodes, %d ms, time-to-depth speedup %.2f%n",
+                threads, matches, states.length, nodes, msec, rate / baseRate);
+        return baseRate;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: SearchBench [-m [-r | -l <playouts>]] [-t <threads>[,<threads>...]] <msec>");
+        System.out.println("       SearchBench -a [-t <threads>[,<threads>...]] <depth>");
+        System.exit(1);
+    }
+
+}
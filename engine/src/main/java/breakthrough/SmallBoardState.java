@@ -0,0 +1,430 @@
+package breakthrough;
+
+import java.util.ArrayList;
+
+/**
+ * SmallBoardState
+ *
+ * Single-long bitboard state for any board of up to 64 squares (6x6, 7x7, 6x8, ...). The masks
+ * and shifts come from BoardGeometry and are copied into final fields, move generation is
+ * shift-and-mask as in DiscoveryState. Moves use the DiscoveryMove encoding and the Zobrist
+ * keys of DiscoveryZobrist, so on 8x8 positions, moves and keys equal those of DiscoveryState.
+ */
+public class SmallBoardState implements State {
+
+    // Colors
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Geometry
+    private final BoardGeometry geometry;
+    private final long board;
+    private final long notFileA;
+    private final long notLastFile;
+    private final long[] goal;
+    private final int  shiftForward;
+    private final int  shiftFileA;
+    private final int  shiftLastFile;
+
+    // Position
+    private final long[] pieces = new long[2];
+    private int sideToMove;
+    private long key;
+    private Result result;
+
+    private final int[] actions = new int[DiscoveryState.MAX_MOVES]; // Scratch move list for getActions.
+
+    public SmallBoardState(int rows, int cols) {
+        this(BoardGeometry.of(rows, cols));
+    }
+
+    public SmallBoardState(BoardGeometry geometry) {
+        this.geometry = geometry;
+        board         = geometry.board;
+        notFileA      = geometry.notFileA;
+        notLastFile   = geometry.notLastFile;
+        goal          = geometry.goal;
+        shiftForward  = geometry.shiftForward;
+        shiftFileA    = geometry.shiftFileA;
+        shiftLastFile = geometry.shiftLastFile;
+        reset();
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public int getRows() {
+        return geometry.rows;
+    }
+
+    public int getCols() {
+        return geometry.cols;
+    }
+
+    public long getHashKey() {
+        return key;
+    }
+
+    // Computes the Zobrist key from scratch (the key is otherwise kept up to date incrementally).
+    public long computeHashKey() {
+        long k = 0L;
+        for (int square = 0; square < geometry.squares; square++) {
+            if ((pieces[WHITE] & (1L << square)) != 0) k ^= DiscoveryZobrist.PIECES[WHITE][square];
+            if ((pieces[BLACK] & (1L << square)) != 0) k ^= DiscoveryZobrist.PIECES[BLACK][square];
+        }
+        if (sideToMove == BLACK) {
+            k ^= DiscoveryZobrist.SIDE_TO_MOVE;
+        }
+        return k;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Move generation
+    ///////////////////////////////////////////////////////////////////////////
+
+    // Writes the moves to moves[offset...] and returns how many there are. The move 'first', if
+    // generated, is swapped to moves[offset].
+    public int getAllMoves(int[] moves, int offset, int first) {
+        int end = offset;
+        long us    = pieces[sideToMove];
+        long them  = pieces[sideToMove ^ 1];
+        long empty = board & ~(us | them);
+        if (sideToMove == WHITE) {
+            long fileA    = (us & notFileA) << shiftFileA;
+            long lastFile = (us & notLastFile) << shiftLastFile;
+            end = addMoves(moves, end, fileA & them, -shiftFileA, true);
+            end = addMoves(moves, end, lastFile & them, -shiftLastFile, true);
+            end = addMoves(moves, end, (us << shiftForward) & empty, -shiftForward, false);
+            end = addMoves(moves, end, fileA & empty, -shiftFileA, false);
+            end = addMoves(moves, end, lastFile & empty, -shiftLastFile, false);
+        } else {
+            long fileA    = (us & notFileA) >>> shiftLastFile;
+            long lastFile = (us & notLastFile) >>> shiftFileA;
+            end = addMoves(moves, end, fileA & them, shiftLastFile, true);
+            end = addMoves(moves, end, lastFile & them, shiftFileA, true);
+            end = addMoves(moves, end, (us >>> shiftForward) & empty, shiftForward, false);
+            end = addMoves(moves, end, fileA & empty, shiftLastFile, false);
+            end = addMoves(moves, end, lastFile & empty, shiftFileA, false);
+        }
+        placeFirst(moves, offset, end, first);
+        return end - offset;
+    }
+
+    public int getCaptureMoves(int[] moves, int offset, int first) {
+        int end = offset;
+        long us   = pieces[sideToMove];
+        long them = pieces[sideToMove ^ 1];
+        if (sideToMove == WHITE) {
+            end = addMoves(moves, end, ((us & notFileA) << shiftFileA) & them, -shiftFileA, true);
+            end = addMoves(moves, end, ((us & notLastFile) << shiftLastFile) & them, -shiftLastFile, true);
+        } else {
+            end = addMoves(moves, end, ((us & notFileA) >>> shiftLastFile) & them, shiftLastFile, true);
+            end = addMoves(moves, end, ((us & notLastFile) >>> shiftFileA) & them, shiftFileA, true);
+        }
+        placeFirst(moves, offset, end, first);
+        return end - offset;
+    }
+
+    // Counts the moves getAllMoves would generate, without generating them (bulk counting).
+    public int countMoves() {
+        long us    = pieces[sideToMove];
+        long empty = board & ~(us | pieces[sideToMove ^ 1]);
+        if (sideToMove == WHITE) {
+            return Long.bitCount((us << shiftForward) & empty)
+                 + Long.bitCount(((us & notFileA) << shiftFileA) & board & ~us)
+                 + Long.bitCount(((us & notLastFile) << shiftLastFile) & board & ~us);
+        } else {
+            return Long.bitCount((us >>> shiftForward) & empty)
+                 + Long.bitCount(((us & notFileA) >>> shiftLastFile) & ~us)
+                 + Long.bitCount(((us & notLastFile) >>> shiftFileA) & ~us);
+        }
+    }
+
+    private static int addMoves(int[] moves, int index, long bitboard, int delta, boolean areCaptures) {
+        while (bitboard != 0) {
+            int to = Long.numberOfTrailingZeros(bitboard);
+            bitboard &= bitboard - 1;
+            moves[index++] = DiscoveryMove.createMove(to + delta, to, areCaptures);
+        }
+        return index;
+    }
+
+    // Moves 'first' to the front, shifting the moves before it up by one so the rest keep their
+    // order (captures first).
+    private static void placeFirst(int[] moves, int offset, int end, int first) {
+        if (first == DiscoveryMove.MOVE_NONE) {
+            return;
+        }
+        for (int i = offset; i < end; i++) {
+            if (moves[i] == first) {
+                System.arraycopy(moves, offset, moves, offset + 1, i - offset);
+                moves[offset] = first;
+                return;
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Make / retract
+    ///////////////////////////////////////////////////////////////////////////
+
+    public void make(int move) {
+        assert !isTerminal();
+
+        int us   = sideToMove;
+        int them = us ^ 1;
+        int from = DiscoveryMove.getFrom(move);
+        int to   = DiscoveryMove.getTo(move);
+
+        pieces[us] ^= (1L << from) | (1L << to);
+        key ^= DiscoveryZobrist.PIECES[us][from] ^ DiscoveryZobrist.PIECES[us][to] ^ DiscoveryZobrist.SIDE_TO_MOVE;
+        if (DiscoveryMove.isCapture(move)) {
+            pieces[them] &= ~(1L << to);
+            key ^= DiscoveryZobrist.PIECES[them][to];
+        }
+
+        // Reached the goal rank or took the last piece: the side to move (now) has lost.
+        if ((pieces[us] & goal[us]) != 0 || pieces[them] == 0) {
+            result = Result.Loss;
+        }
+        sideToMove = them;
+    }
+
+    public void retract(int move) {
+        int them = sideToMove;
+        int us   = them ^ 1;
+        int from = DiscoveryMove.getFrom(move);
+        int to   = DiscoveryMove.getTo(move);
+
+        pieces[us] ^= (1L << from) | (1L << to);
+        key ^= DiscoveryZobrist.PIECES[us][from] ^ DiscoveryZobrist.PIECES[us][to] ^ DiscoveryZobrist.SIDE_TO_MOVE;
+        if (DiscoveryMove.isCapture(move)) {
+            pieces[them] |= 1L << to;
+            key ^= DiscoveryZobrist.PIECES[them][to];
+        }
+
+        sideToMove = us;
+        result = Result.Unknown;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // State interface (moves as shared BoardGeometry.toMove() instances)
+    ///////////////////////////////////////////////////////////////////////////
+
+    public ArrayList<Move> getActions(Move first) {
+        if (isTerminal()) {
+            return new ArrayList<Move>(0);
+        }
+        int count = getAllMoves(actions, 0, first == null ? DiscoveryMove.MOVE_NONE : geometry.toInt(first));
+        ArrayList<Move> moves = new ArrayList<Move>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(geometry.toMove(actions[i]));
+        }
+        return moves;
+    }
+
+    public void make(Move move) {
+        make(geometry.toInt(move));
+    }
+
+    public void retract(Move move) {
+        retract(geometry.toInt(move));
+    }
+
+    public boolean isTerminal() {
+        return result != Result.Unknown;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public int getPlayerToMove() {
+        return sideToMove;
+    }
+
+    public void reset() {
+        pieces[WHITE] = geometry.ranks[0] | geometry.ranks[1];
+        pieces[BLACK] = geometry.ranks[geometry.rows - 1] | geometry.ranks[geometry.rows - 2];
+        sideToMove = WHITE;
+        result = Result.Unknown;
+        key = computeHashKey();
+    }
+
+    public int getEvaluation() {
+        if (isTerminal()) {
+            return result == Result.Win ? State.WIN_VALUE : State.LOSS_VALUE;
+        }
+        int value = Long.bitCount(pieces[WHITE]) - Long.bitCount(pieces[BLACK]);
+        return (sideToMove == WHITE ? value : -value);
+    }
+
+    public State copy() {
+        SmallBoardState copy = new SmallBoardState(geometry);
+        copyInto(copy);
+        return copy;
+    }
+
+    public void copyInto(State target) {
+        SmallBoardState other = (SmallBoardState) target;
+        assert other.geometry == geometry;
+        other.pieces[WHITE] = pieces[WHITE];
+        other.pieces[BLACK] = pieces[BLACK];
+        other.sideToMove    = sideToMove;
+        other.key           = key;
+        other.result        = result;
+    }
+
+    // Snapshot: the two bitboards, the hash key and the side to move and result.
+    public int getSnapshotSize() {
+        return 4;
+    }
+
+    public void snapshot(long[] buffer, int offset) {
+        buffer[offset]     = pieces[WHITE];
+        buffer[offset + 1] = pieces[BLACK];
+        buffer[offset + 2] = key;
+        buffer[offset + 3] = sideToMove | (result.ordinal() << 1);
+    }
+
+    public void restore(long[] buffer, int offset) {
+        pieces[WHITE] = buffer[offset];
+        pieces[BLACK] = buffer[offset + 1];
+        key           = buffer[offset + 2];
+        sideToMove    = (int) buffer[offset + 3] & 1;
+        result        = Result.of((int) (buffer[offset + 3] >>> 1));
+    }
+
+    public Move isLegalMove(String strMove) {
+        if (isTerminal()) {
+            return null;
+        }
+        int count = getAllMoves(actions, 0, DiscoveryMove.MOVE_NONE);
+        for (int i = 0; i < count; i++) {
+            if (geometry.toString(actions[i]).equals(strMove)) {
+                return geometry.toMove(actions[i]);
+            }
+        }
+        return null;
+    }
+
+    // Same FEN-like format as BreakthroughState: the ranks from the top, then an optional ' '
+    // and the side to move, 0/1 (white if there is none).
+    public boolean setup(String fen) {
+        int n = geometry.squares;
+        if (fen.length() < n) {
+            reset();
+            return false;
+        }
+
+        long white = 0L;
+        long black = 0L;
+        for (int i = 0; i < n; i++) {
+            long bit = 1L << geometry.square(geometry.rows - 1 - i / geometry.cols, i % geometry.cols);
+            switch (fen.charAt(i)) {
+                case 'w': white |= bit; break;
+                case 'b': black |= bit; break;
+                case '.': break;
+                default: reset(); return false;
+            }
+        }
+        int i = (fen.length() > n && fen.charAt(n) == ' ') ? n + 1 : n;
+        int side = WHITE;
+        if (i < fen.length()) {
+            switch (fen.charAt(i)) {
+                case '0': break;
+                case '1': side = BLACK; break;
+                default: reset(); return false;
+            }
+        }
+        return setup(white, black, side);
+    }
+
+    // Sets up the position from its bitboards and side to move.
+    private boolean setup(long white, long black, int side) {
+        // Check if a legal position (same rules as BreakthroughState):
+        //  - side not-to-move must have at least one piece.
+        //  - maximum one piece on backrank, and not for side-to-move.
+        long us   = (side == WHITE ? white : black);
+        long them = (side == WHITE ? black : white);
+        if (them == 0 || (us & goal[side]) != 0 || Long.bitCount(them & goal[side ^ 1]) > 1) {
+            reset();
+            return false;
+        }
+
+        pieces[WHITE] = white;
+        pieces[BLACK] = black;
+        sideToMove = side;
+        result = ((them & goal[side ^ 1]) != 0 || us == 0) ? Result.Loss : Result.Unknown;
+        key = computeHashKey();
+        return true;
+    }
+
+    public int getEncodedSize() {
+        return PositionCodec.getEncodedSize(geometry.rows, geometry.cols);
+    }
+
+    public void encode(byte[] buffer, int offset) {
+        int bytes = PositionCodec.bitsetBytes(geometry.squares);
+        PositionCodec.putBits(buffer, offset, pieces[WHITE], bytes);
+        PositionCodec.putBits(buffer, offset + bytes, pieces[BLACK], bytes);
+        buffer[offset + 2 * bytes] = (byte) sideToMove;
+    }
+
+    public boolean decode(byte[] buffer, int offset) {
+        int bytes = PositionCodec.bitsetBytes(geometry.squares);
+        long white = PositionCodec.getBits(buffer, offset, bytes) & board;
+        long black = PositionCodec.getBits(buffer, offset + bytes, bytes) & board;
+        if ((white & black) != 0) {
+            reset();
+            return false;
+        }
+        return setup(white, black, buffer[offset + 2 * bytes] == 0 ? WHITE : BLACK);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(geometry.squares + 2);
+        for (int rank = geometry.rows - 1; rank >= 0; rank--) {
+            for (int file = 0; file < geometry.cols; file++) {
+                sb.append(squareChar(geometry.square(rank, file)));
+            }
+        }
+        sb.append(' ');
+        sb.append(sideToMove == WHITE ? '0' : '1');
+        return sb.toString();
+    }
+
+    public void display() {
+        System.out.println("Side: " + (sideToMove == WHITE ? "White" : "Black"));
+        for (int rank = geometry.rows - 1; rank >= 0; rank--) {
+            System.out.print(geometry.names[geometry.square(rank, 0)].substring(1) + " ");
+            for (int file = 0; file < geometry.cols; file++) {
+                System.out.print(squareChar(geometry.square(rank, file)) + " ");
+            }
+            System.out.println();
+        }
+        System.out.print("  ");
+        for (int file = 0; file < geometry.cols; file++) {
+            System.out.print(geometry.names[geometry.square(0, file)].charAt(0) + " ");
+        }
+        System.out.println();
+        System.out.println("Result: " + getResult());
+        System.out.println("FEN-str: " + toString());
+        System.out.print("Moves:");
+        for (Move move : getActions(null)) {
+            System.out.print(' ');
+            System.out.print(move.toStr());
+        }
+        System.out.println();
+        System.out.println();
+    }
+
+    private char squareChar(int square) {
+        if ((pieces[WHITE] & (1L << square)) != 0) return 'w';
+        if ((pieces[BLACK] & (1L << square)) != 0) return 'b';
+        return '.';
+    }
+
+}
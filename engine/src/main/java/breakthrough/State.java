@@ -0,0 +1,96 @@
+package breakthrough;
+
+/**
+ *
+ * State Interface
+ *
+ */
+import java.util.ArrayList;
+
+public interface State {
+
+    enum Result {
+        Unknown, Loss, Win;
+
+        private static final Result[] VALUES = values();
+
+        static Result of( int ordinal ) { return VALUES[ordinal]; }
+    };
+
+    // Win/Loss values
+    public static int WIN_VALUE  =  10000;
+    public static int LOSS_VALUE = -10000;
+
+    // Get all possible actions in the state. If action 'first' is part of list, it will be
+    // place first in the list.
+    ArrayList<Move> getActions( Move first );
+
+    // Make the provided action.
+    void make( Move move );
+
+    // Undo the last action.
+    void retract( Move move );
+
+    // Check if a state is terminal.
+    boolean isTerminal();
+
+    // Returns game outcome (Unknown, Loss, Win), relative to side to move.
+    Result getResult();
+
+    // Return side to move
+    int getPlayerToMove();
+
+    // Board size.
+    int getRows();
+
+    int getCols();
+
+    // Reset state to initial position.
+    void reset();
+
+    // Display state;
+    void display();
+
+    // Evaluate "goodness" of state.
+    int getEvaluation();
+
+    // Returns move is strMove represents legal move, otherwise null.
+    Move isLegalMove( String strMove );
+
+    // Returns string representation of the state (FEN-like).
+    String toString();
+
+    // Set up a game position (from a FEN-like string). True on success, false otherwise
+    // (and the state is reset to the start state).
+    boolean setup( String strFEN );
+
+    // Zobrist key of the position (see Zobrist), kept up to date by make/retract. All implementations
+    // give a position the same key.
+    long getHashKey();
+
+    // Returns an independent copy of the state (e.g. for another search thread).
+    State copy();
+
+    // Copies the position into 'target', a state of the same class and board size.
+    void copyInto( State target );
+
+    // Number of longs in a snapshot.
+    int getSnapshotSize();
+
+    // Writes a compact snapshot of the position (bitboards, side to move, ...) to
+    // buffer[offset...offset+getSnapshotSize()-1].
+    void snapshot( long[] buffer, int offset );
+
+    // Restores a position from a snapshot taken by a state of the same class and board size.
+    void restore( long[] buffer, int offset );
+
+    // Number of bytes of the binary encoding of a position, see PositionCodec.
+    int getEncodedSize();
+
+    // Writes the position in the binary encoding to buffer[offset...offset+getEncodedSize()-1].
+    void encode( byte[] buffer, int offset );
+
+    // Sets up the position from its binary encoding. Returns false (and resets the state) if illegal.
+    boolean decode( byte[] buffer, int offset );
+
+}
@@ -0,0 +1,200 @@
+package breakthrough;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable
+ *
+ * Two parallel long arrays, one with the keys and one with the entries packed into a long
+ * (see pack()), so the table holds no objects. The key array holds key ^ entry: a probe only
+ * matches if both halves were written together, so threads can share the table without locks
+ * (a torn or racing write reads as a miss). Entries live in buckets of two adjacent slots,
+ * a depth-preferred one and an always-replace one, and the bucket is found by masking the key.
+ *
+ * The table is kept between searches. Every entry is stamped with the generation of the search
+ * that stored it and with the progress key of its position (see DiscoveryState.getProgress()).
+ * Entries of older searches are still found, but lose depth priority as they age, and entries
+ * of positions that can no longer arise from the current root are replaced first.
+ */
+public class TranspositionTable {
+
+    // Constants
+
+    public static final long NO_ENTRY = 0L;
+
+    private static final int  SLOTS_PER_BUCKET = 2;
+    private static final int  BYTES_PER_SLOT   = 16;   // A key and an entry.
+
+    // Entry layout, from the lowest bit: move + 1 (14 bits), eval (16 bits, signed), depth (8 bits),
+    // type (2 bits), generation (7 bits), progress (16 bits) and the highest bit set, so that no
+    // entry equals NO_ENTRY.
+    private static final int  EVAL_SHIFT       = 14;
+    private static final int  DEPTH_SHIFT      = 30;
+    private static final int  TYPE_SHIFT       = 38;
+    private static final int  GENERATION_SHIFT = 40;
+    private static final int  PROGRESS_SHIFT   = 47;
+    private static final int  GENERATIONS      = 1 << 7;
+    private static final int  AGE_PENALTY      = 2;    // Depth an entry loses per generation.
+    private static final long MOVE_MASK   = (1L << EVAL_SHIFT) - 1;
+    private static final long USED        = 1L << 63;
+
+    // Member variables
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int    mask;
+    private int          generation;
+    private int          rootProgress;
+
+    // Functions
+
+    // Creates the largest table (in buckets, a power of two) that fits in the given number of megabytes.
+    public TranspositionTable(int megabytes) {
+        long bytes   = Math.max(1L, megabytes) << 20;
+        int  buckets = Integer.highestOneBit((int) Math.min(bytes / (SLOTS_PER_BUCKET * BYTES_PER_SLOT), 1 << 28));
+        this.mask    = buckets - 1;
+        this.keys    = new long[buckets * SLOTS_PER_BUCKET];
+        this.entries = new long[buckets * SLOTS_PER_BUCKET];
+        this.rootProgress = DiscoveryState.PROGRESS_ANY;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(entries, NO_ENTRY);
+        generation = 0;
+        rootProgress = DiscoveryState.PROGRESS_ANY;
+    }
+
+    // Starts a new generation; call before every search, with the progress key of the root.
+    public void newSearch(int rootProgress) {
+        this.generation   = (generation + 1) % GENERATIONS;
+        this.rootProgress = rootProgress;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    // Returns how many of the first 1000 slots hold entries of the current generation.
+    public int getUsage() {
+        int used = 0;
+        for (int i = 0; i < Math.min(1000, entries.length); i++) {
+            if (entries[i] != NO_ENTRY && getGeneration(entries[i]) == generation) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    // Returns how many of the first 1000 slots hold entries that can still arise from the root.
+    public int getReachable() {
+        int reachable = 0;
+        for (int i = 0; i < Math.min(1000, entries.length); i++) {
+            if (entries[i] != NO_ENTRY && isReachable(entries[i])) {
+                reachable++;
+            }
+        }
+        return reachable;
+    }
+
+    public int getSize() {
+        return entries.length;
+    }
+
+    // Returns the entry stored for 'key', or NO_ENTRY.
+    public long get(long key) {
+        int index = bucket(key);
+
+        for (int i = index; i < index + SLOTS_PER_BUCKET; i++) {
+            long entry = entries[i];
+            if (entry != NO_ENTRY && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+
+        return NO_ENTRY;
+    }
+
+    public void put(long key, int progress, int type, int depth, int eval, int move) {
+
+        int index = bucket(key);
+        long entry = entries[index];
+
+        if (entry == NO_ENTRY || !isReachable(entry) || getDepth(entry) - AGE_PENALTY * getAge(entry) <= depth) {
+            // The depth entry is empty, unreachable or its (aged) depth is lower; replace.
+            store(index, key, pack(progress, type, depth, eval, move, generation));
+        } else if ((keys[index] ^ entry) == key && getMove(entry) == DiscoveryMove.MOVE_NONE) {
+            // An entry was found with this key, but it did not contain any move.
+            store(index, key, pack(progress, getType(entry), getDepth(entry), getEval(entry), move, generation));
+        } else {
+            // Put the entry into the always-replace spot.
+            store(index + 1, key, pack(progress, type, depth, eval, move, generation));
+        }
+    }
+
+    public void putLeaf(long key, int progress, int eval, int alpha, int beta) {
+        if (eval >= beta) {
+            put(key, progress, AgentDiscovery.SCORE_UPPER, 0, eval, DiscoveryMove.MOVE_NONE);
+        } else if (eval <= alpha) {
+            put(key, progress, AgentDiscovery.SCORE_LOWER, 0, eval, DiscoveryMove.MOVE_NONE);
+        } else {
+            put(key, progress, AgentDiscovery.SCORE_EXACT, 0, eval, DiscoveryMove.MOVE_NONE);
+        }
+    }
+
+    private void store(int index, long key, long entry) {
+        keys[index] = key ^ entry;
+        entries[index] = entry;
+    }
+
+    // Number of searches since the entry was stored.
+    private int getAge(long entry) {
+        return (generation - getGeneration(entry)) & (GENERATIONS - 1);
+    }
+
+    private boolean isReachable(long entry) {
+        return DiscoveryState.canFollow(getProgress(entry), rootProgress);
+    }
+
+    private int bucket(long key) {
+        return ((int) key & mask) * SLOTS_PER_BUCKET;
+    }
+
+    // Entry packing
+
+    private static long pack(int progress, int type, int depth, int eval, int move, int generation) {
+        assert eval == (short) eval && depth >= 0 && depth <= 0xFF && move < MOVE_MASK;
+        return USED
+             | ((long) (progress & 0xFFFF) << PROGRESS_SHIFT)
+             | ((long) generation << GENERATION_SHIFT)
+             | ((long) type << TYPE_SHIFT)
+             | ((long) depth << DEPTH_SHIFT)
+             | ((long) (eval & 0xFFFF) << EVAL_SHIFT)
+             | (move + 1);
+    }
+
+    public static int getProgress(long entry) {
+        return (int) (entry >>> PROGRESS_SHIFT) & 0xFFFF;
+    }
+
+    public static int getGeneration(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & (GENERATIONS - 1);
+    }
+
+    public static int getType(long entry) {
+        return (int) (entry >>> TYPE_SHIFT) & 0x3;
+    }
+
+    public static int getDepth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int getEval(long entry) {
+        return (short) (entry >>> EVAL_SHIFT);
+    }
+
+    public static int getMove(long entry) {
+        return (int) (entry & MOVE_MASK) - 1;
+    }
+
+}
@@ -0,0 +1,56 @@
+package breakthrough;
+
+import java.util.Random;
+
+/**
+ * Zobrist
+ *
+ * Zobrist keys for every board size, by color and square, with the squares numbered as in
+ * DiscoveryState and PositionCodec (square = rank * cols + (cols - 1 - file)). The first 64
+ * squares have the keys of DiscoveryZobrist, so every State implementation hashes a position
+ * to the same key.
+ */
+public class Zobrist {
+
+    // Constants
+    public static final int MAX_SQUARES = MultiWordState.MAX_ROWS * MultiWordState.MAX_COLS;
+
+    public static final long[][] PIECES = new long[DiscoveryState.NO_OF_COLORS][MAX_SQUARES];
+    public static final long SIDE_TO_MOVE = DiscoveryZobrist.SIDE_TO_MOVE;
+
+    // Functions
+
+    static {
+        // Generates random keys for the squares beyond 64, of each color:
+        Random random = new Random(64L);
+        for (int a = 0; a < DiscoveryState.NO_OF_COLORS; a++) {
+            for (int b = 0; b < MAX_SQUARES; b++) {
+                PIECES[a][b] = b < DiscoveryState.NO_OF_SQUARES ? DiscoveryZobrist.PIECES[a][b] : Math.abs(random.nextLong());
+            }
+        }
+    }
+
+    // Computes the key of any state from scratch, from its binary encoding (for verification).
+    public static long getZobristKey(final State state) {
+        byte[] encoded = new byte[state.getEncodedSize()];
+        state.encode(encoded, 0);
+        int bytes = (encoded.length - 1) / 2;
+        long key = 0L;
+
+        // Every piece on the board:
+        for (int square = 0; square < 8 * bytes; square++) {
+            if (PositionCodec.testBit(encoded, 0, square)) {
+                key ^= PIECES[DiscoveryState.WHITE][square];
+            }
+            if (PositionCodec.testBit(encoded, bytes, square)) {
+                key ^= PIECES[DiscoveryState.BLACK][square];
+            }
+        }
+        // Side to move
+        if (encoded[2 * bytes] != 0) {
+            key ^= SIDE_TO_MOVE;
+        }
+        return key;
+    }
+
+}